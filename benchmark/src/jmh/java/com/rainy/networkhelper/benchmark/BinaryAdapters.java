@@ -0,0 +1,225 @@
+package com.rainy.networkhelper.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.rainy.networkhelper.benchmark.proto.AlbumProtos;
+import com.rainy.networkhelper.mapper.CborBodyMapper;
+import com.rainy.networkhelper.mapper.MessagePackBodyMapper;
+
+import org.msgpack.core.MessagePacker;
+import org.msgpack.core.MessageUnpacker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Hand-written adapters of {@link Payloads.Album} for the binary mappers, and its protobuf form.
+ * The adapters write the same maps as the Gson fallback, so their output is interchangeable.
+ */
+public final class BinaryAdapters {
+    private BinaryAdapters() {
+    }
+
+    public static final MessagePackBodyMapper.Adapter<Payloads.Album> MSGPACK_ALBUM = new MessagePackBodyMapper.Adapter<Payloads.Album>() {
+        @Override
+        public void write(MessagePacker packer, Payloads.Album album) throws IOException {
+            packer.packMapHeader(5);
+            packer.packString("id").packLong(album.id);
+            packer.packString("title").packString(album.title);
+            packer.packString("description").packString(album.description);
+            packer.packString("isPublic").packBoolean(album.isPublic);
+            packer.packString("photos").packArrayHeader(album.photos.size());
+            for (Payloads.Photo photo : album.photos) {
+                packer.packMapHeader(6);
+                packer.packString("id").packLong(photo.id);
+                packer.packString("url").packString(photo.url);
+                packer.packString("width").packInt(photo.width);
+                packer.packString("height").packInt(photo.height);
+                packer.packString("rating").packDouble(photo.rating);
+                packer.packString("tags").packArrayHeader(photo.tags.size());
+                for (String tag : photo.tags)
+                    packer.packString(tag);
+            }
+        }
+
+        @Override
+        public Payloads.Album read(MessageUnpacker unpacker) throws IOException {
+            Payloads.Album album = new Payloads.Album();
+            for (int i = unpacker.unpackMapHeader(); i > 0; i--) {
+                switch (unpacker.unpackString()) {
+                    case "id":
+                        album.id = unpacker.unpackLong();
+                        break;
+                    case "title":
+                        album.title = unpacker.unpackString();
+                        break;
+                    case "description":
+                        album.description = unpacker.unpackString();
+                        break;
+                    case "isPublic":
+                        album.isPublic = unpacker.unpackBoolean();
+                        break;
+                    case "photos":
+                        int count = unpacker.unpackArrayHeader();
+                        album.photos = new ArrayList<>(count);
+                        for (int j = 0; j < count; j++)
+                            album.photos.add(readPhoto(unpacker));
+                        break;
+                    default:
+                        unpacker.skipValue();
+                }
+            }
+
+            return album;
+        }
+
+        private Payloads.Photo readPhoto(MessageUnpacker unpacker) throws IOException {
+            Payloads.Photo photo = new Payloads.Photo();
+            for (int i = unpacker.unpackMapHeader(); i > 0; i--) {
+                switch (unpacker.unpackString()) {
+                    case "id":
+                        photo.id = unpacker.unpackLong();
+                        break;
+                    case "url":
+                        photo.url = unpacker.unpackString();
+                        break;
+                    case "width":
+                        photo.width = unpacker.unpackInt();
+                        break;
+                    case "height":
+                        photo.height = unpacker.unpackInt();
+                        break;
+                    case "rating":
+                        photo.rating = unpacker.unpackDouble();
+                        break;
+                    case "tags":
+                        int count = unpacker.unpackArrayHeader();
+                        photo.tags = new ArrayList<>(count);
+                        for (int j = 0; j < count; j++)
+                            photo.tags.add(unpacker.unpackString());
+                        break;
+                    default:
+                        unpacker.skipValue();
+                }
+            }
+
+            return photo;
+        }
+    };
+
+    public static final CborBodyMapper.Adapter<Payloads.Album> CBOR_ALBUM = new CborBodyMapper.Adapter<Payloads.Album>() {
+        @Override
+        public void write(JsonGenerator generator, Payloads.Album album) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", album.id);
+            generator.writeStringField("title", album.title);
+            generator.writeStringField("description", album.description);
+            generator.writeBooleanField("isPublic", album.isPublic);
+            generator.writeFieldName("photos");
+            generator.writeStartArray(album.photos.size());
+            for (Payloads.Photo photo : album.photos) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", photo.id);
+                generator.writeStringField("url", photo.url);
+                generator.writeNumberField("width", photo.width);
+                generator.writeNumberField("height", photo.height);
+                generator.writeNumberField("rating", photo.rating);
+                generator.writeFieldName("tags");
+                generator.writeStartArray(photo.tags.size());
+                for (String tag : photo.tags)
+                    generator.writeString(tag);
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        @Override
+        public Payloads.Album read(JsonParser parser) throws IOException {
+            parser.nextToken();
+            Payloads.Album album = new Payloads.Album();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                switch (name) {
+                    case "id":
+                        album.id = parser.getLongValue();
+                        break;
+                    case "title":
+                        album.title = parser.getText();
+                        break;
+                    case "description":
+                        album.description = parser.getText();
+                        break;
+                    case "isPublic":
+                        album.isPublic = parser.getBooleanValue();
+                        break;
+                    case "photos":
+                        album.photos = new ArrayList<>();
+                        while (parser.nextToken() == JsonToken.START_OBJECT)
+                            album.photos.add(readPhoto(parser));
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            return album;
+        }
+
+        private Payloads.Photo readPhoto(JsonParser parser) throws IOException {
+            Payloads.Photo photo = new Payloads.Photo();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                switch (name) {
+                    case "id":
+                        photo.id = parser.getLongValue();
+                        break;
+                    case "url":
+                        photo.url = parser.getText();
+                        break;
+                    case "width":
+                        photo.width = parser.getIntValue();
+                        break;
+                    case "height":
+                        photo.height = parser.getIntValue();
+                        break;
+                    case "rating":
+                        photo.rating = parser.getDoubleValue();
+                        break;
+                    case "tags":
+                        photo.tags = new ArrayList<>();
+                        while (parser.nextToken() == JsonToken.VALUE_STRING)
+                            photo.tags.add(parser.getText());
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            return photo;
+        }
+    };
+
+    public static AlbumProtos.Album toProto(Payloads.Album album) {
+        AlbumProtos.Album.Builder builder = AlbumProtos.Album.newBuilder()
+                .setId(album.id)
+                .setTitle(album.title)
+                .setDescription(album.description)
+                .setIsPublic(album.isPublic);
+        for (Payloads.Photo photo : album.photos) {
+            builder.addPhotos(AlbumProtos.Photo.newBuilder()
+                    .setId(photo.id)
+                    .setUrl(photo.url)
+                    .setWidth(photo.width)
+                    .setHeight(photo.height)
+                    .setRating(photo.rating)
+                    .addAllTags(photo.tags));
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.rainy.networkhelper.benchmark;
+
+import com.rainy.networkhelper.benchmark.proto.AlbumProtos;
+import com.rainy.networkhelper.mapper.CborBodyMapper;
+import com.rainy.networkhelper.mapper.GsonBodyMapper;
+import com.rainy.networkhelper.mapper.MessagePackBodyMapper;
+import com.rainy.networkhelper.mapper.ProtobufBodyMapper;
+import com.rainy.networkhelper.mapper.StreamingBodyMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Encoding and decoding the same album with the binary mappers and with {@link GsonBodyMapper}.
+ * The MessagePack and CBOR mappers are measured both with a registered adapter ("-adapter")
+ * and through the Gson fallback. The size of the encoded body is printed when the trial starts.
+ */
+@State(Scope.Benchmark)
+public class BinaryBodyMapperBenchmark {
+    private static final String ENCODING = "UTF-8";
+
+    @Param({"1", "100", "5000"})
+    public int photoCount;
+
+    @Param({"json", "msgpack", "msgpack-adapter", "cbor", "cbor-adapter", "protobuf"})
+    public String format;
+
+    private StreamingBodyMapper mapper;
+    private Object body;
+    private Type type;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        Payloads.Album album = Payloads.album(photoCount);
+        body = album;
+        type = Payloads.Album.class;
+
+        switch (format) {
+            case "json":
+                mapper = new GsonBodyMapper();
+                break;
+            case "msgpack":
+                mapper = new MessagePackBodyMapper();
+                break;
+            case "msgpack-adapter":
+                mapper = new MessagePackBodyMapper().register(Payloads.Album.class, BinaryAdapters.MSGPACK_ALBUM);
+                break;
+            case "cbor":
+                mapper = new CborBodyMapper();
+                break;
+            case "cbor-adapter":
+                mapper = new CborBodyMapper().register(Payloads.Album.class, BinaryAdapters.CBOR_ALBUM);
+                break;
+            case "protobuf":
+                mapper = new ProtobufBodyMapper();
+                body = BinaryAdapters.toProto(album);
+                type = AlbumProtos.Album.class;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+
+        encoded = mapper.encodeParams(body, ENCODING);
+        System.out.println("\n" + format + " album with " + photoCount + " photos: " + encoded.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return mapper.encodeParams(body, ENCODING);
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return mapper.decodeParams(encoded, type, ENCODING);
+    }
+
+    @Benchmark
+    public Object decodeFromStream() throws Exception {
+        return mapper.decodeParams(new ByteArrayInputStream(encoded), type, ENCODING);
+    }
+}
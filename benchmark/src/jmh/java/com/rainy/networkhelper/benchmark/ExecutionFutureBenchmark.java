@@ -0,0 +1,112 @@
+package com.rainy.networkhelper.benchmark;
+
+import com.rainy.networkhelper.future.ExecutionFuture;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The overhead of completing futures and of the combinators, with sources that
+ * complete right away (on the calling thread) and on an executor.
+ */
+@State(Scope.Benchmark)
+public class ExecutionFutureBenchmark {
+    private static final ExecutionFuture.Mapper<Integer, Integer> INCREMENT = new ExecutionFuture.Mapper<Integer, Integer>() {
+        @Override
+        public Integer map(Integer value) {
+            return value + 1;
+        }
+    };
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Benchmark-Executor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Integer get() throws Exception {
+        return new ImmediateFuture(1).get();
+    }
+
+    @Benchmark
+    public Integer map() throws Exception {
+        return new ImmediateFuture(1).map(INCREMENT).get();
+    }
+
+    @Benchmark
+    public Integer mapChain() throws Exception {
+        return new ImmediateFuture(1).map(INCREMENT).map(INCREMENT).map(INCREMENT).get();
+    }
+
+    @Benchmark
+    public List<Integer> allOf() throws Exception {
+        List<ImmediateFuture> futures = Arrays.asList(new ImmediateFuture(1), new ImmediateFuture(2), new ImmediateFuture(3), new ImmediateFuture(4));
+        return ExecutionFuture.<Integer>allOf(futures).get();
+    }
+
+    @Benchmark
+    public Integer mapOnExecutor() throws Exception {
+        return new ExecutorFuture(1, executor).map(INCREMENT).get();
+    }
+
+    /**
+     * Completes when it is started, on the calling thread.
+     */
+    private static class ImmediateFuture extends ExecutionFuture<Integer> {
+        private final Integer value;
+
+        ImmediateFuture(Integer value) {
+            this.value = value;
+        }
+
+        @Override
+        protected Integer execute(Long timeoutMs) {
+            return value;
+        }
+
+        @Override
+        protected void start() {
+            complete(value);
+        }
+    }
+
+    /**
+     * Completes on the given executor when it is started.
+     */
+    private static class ExecutorFuture extends ExecutionFuture<Integer> {
+        private final Integer value;
+
+        ExecutorFuture(Integer value, ExecutorService executorService) {
+            super(executorService);
+            this.value = value;
+        }
+
+        @Override
+        protected Integer execute(Long timeoutMs) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.rainy.networkhelper.benchmark;
+
+import com.rainy.networkhelper.mapper.FormBodyMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encoding a form body, which reads the fields of the object reflectively and URL-encodes them.
+ */
+@State(Scope.Benchmark)
+public class FormBodyMapperBenchmark {
+    private FormBodyMapper mapper;
+    private Payloads.LoginForm form;
+
+    @Setup
+    public void setUp() {
+        mapper = new FormBodyMapper();
+        form = Payloads.loginForm();
+    }
+
+    @Benchmark
+    public byte[] encodeParams() throws Exception {
+        return mapper.encodeParams(form, "UTF-8");
+    }
+}
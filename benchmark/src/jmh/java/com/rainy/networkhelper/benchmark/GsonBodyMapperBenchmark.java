@@ -0,0 +1,76 @@
+package com.rainy.networkhelper.benchmark;
+
+import com.rainy.networkhelper.mapper.GsonBodyMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+
+/**
+ * Encoding and decoding small (about 200 bytes), medium (about 20 KB) and large (about 1 MB) JSON bodies.
+ */
+@State(Scope.Benchmark)
+public class GsonBodyMapperBenchmark {
+    private static final String ENCODING = "UTF-8";
+
+    @Param({"1", "100", "5000"})
+    public int photoCount;
+
+    private GsonBodyMapper mapper;
+    private Payloads.Album album;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = new GsonBodyMapper();
+        album = Payloads.album(photoCount);
+        json = mapper.encodeParams(album, ENCODING);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return mapper.encodeParams(album, ENCODING);
+    }
+
+    @Benchmark
+    public void encodeToStream(Blackhole blackhole) throws Exception {
+        mapper.encodeTo(album, new BlackholeOutputStream(blackhole), ENCODING);
+    }
+
+    @Benchmark
+    public Payloads.Album decode() throws Exception {
+        return mapper.decodeParams(json, Payloads.Album.class, ENCODING);
+    }
+
+    @Benchmark
+    public Payloads.Album decodeFromStream() throws Exception {
+        return mapper.decodeParams(new ByteArrayInputStream(json), Payloads.Album.class, ENCODING);
+    }
+
+    /**
+     * Consumes the encoded bytes without keeping them, like a connection would.
+     */
+    private static class BlackholeOutputStream extends OutputStream {
+        private final Blackhole blackhole;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.rainy.networkhelper.benchmark;
+
+import com.rainy.networkhelper.annotation.HeaderParam;
+import com.rainy.networkhelper.annotation.PathParam;
+import com.rainy.networkhelper.annotation.QueryParam;
+import com.rainy.networkhelper.util.ParamAccessor;
+import com.rainy.networkhelper.util.ReflectionUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reading the header, path and query parameters of a request, both by scanning
+ * the class on every call and with the accessors that the requests cache per class.
+ */
+@State(Scope.Benchmark)
+public class ParamExtractionBenchmark {
+    private SampleRequest request;
+    private List<ParamAccessor> headerAccessors;
+    private List<ParamAccessor> pathAccessors;
+    private List<ParamAccessor> queryAccessors;
+
+    @Setup
+    public void setUp() {
+        request = new SampleRequest();
+        headerAccessors = ReflectionUtil.getParamAccessors(SampleRequest.class, HeaderParam.class);
+        pathAccessors = ReflectionUtil.getParamAccessors(SampleRequest.class, PathParam.class);
+        queryAccessors = ReflectionUtil.getParamAccessors(SampleRequest.class, QueryParam.class);
+    }
+
+    @Benchmark
+    public Map<String, String> scanHeaderParams() {
+        return ReflectionUtil.getMethodsAndFieldValuesAnnotatedWithHeaderParam(request);
+    }
+
+    @Benchmark
+    public Map<String, String> scanPathParams() {
+        return ReflectionUtil.getMethodsAndFieldValuesAnnotatedWithPathParam(request);
+    }
+
+    @Benchmark
+    public Map<String, String> scanQueryParams() {
+        return ReflectionUtil.getMethodsAndFieldValuesAnnotatedWithQueryParam(request);
+    }
+
+    @Benchmark
+    public List<ParamAccessor> resolveAccessors() {
+        return ReflectionUtil.getParamAccessors(SampleRequest.class, QueryParam.class);
+    }
+
+    @Benchmark
+    public Map<String, String> cachedHeaderParams() {
+        return read(headerAccessors, request);
+    }
+
+    @Benchmark
+    public Map<String, String> cachedPathParams() {
+        return read(pathAccessors, request);
+    }
+
+    @Benchmark
+    public Map<String, String> cachedQueryParams() {
+        return read(queryAccessors, request);
+    }
+
+    static Map<String, String> read(List<ParamAccessor> accessors, Object request) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < accessors.size(); i++) {
+            ParamAccessor accessor = accessors.get(i);
+            String value = accessor.getValue(request);
+            if (value != null)
+                values.put(accessor.getName(), value);
+        }
+
+        return values;
+    }
+}
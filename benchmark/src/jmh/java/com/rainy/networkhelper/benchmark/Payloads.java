@@ -0,0 +1,77 @@
+package com.rainy.networkhelper.benchmark;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The request and response bodies used by the mapper benchmarks.
+ */
+public final class Payloads {
+    private Payloads() {
+    }
+
+    /**
+     * @param photoCount The number of photos in the album, which controls the size of the payload.
+     */
+    public static Album album(int photoCount) {
+        Album album = new Album();
+        album.id = 42;
+        album.title = "Summer holiday";
+        album.description = "Photos of the summer holiday at Lake Balaton, 2016";
+        album.isPublic = true;
+        album.photos = new ArrayList<>(photoCount);
+        for (int i = 0; i < photoCount; i++) {
+            Photo photo = new Photo();
+            photo.id = 1000L + i;
+            photo.url = "https://cdn.example.com/photos/" + (1000 + i) + ".jpg";
+            photo.width = 4032;
+            photo.height = 3024;
+            photo.rating = (i % 5) + 0.5;
+            photo.tags = new ArrayList<>();
+            photo.tags.add("beach");
+            photo.tags.add("sunset");
+            album.photos.add(photo);
+        }
+
+        return album;
+    }
+
+    public static LoginForm loginForm() {
+        LoginForm form = new LoginForm();
+        form.username = "gabor.szanto@example.com";
+        form.password = "p@ss w0rd&more";
+        form.deviceId = "a1b2c3d4-e5f6-7890-abcd-ef1234567890";
+        form.rememberMe = true;
+        form.clientVersion = 104;
+        return form;
+    }
+
+    public static class Album {
+        public long id;
+        public String title;
+        public String description;
+        public boolean isPublic;
+        public List<Photo> photos;
+    }
+
+    public static class Photo {
+        public long id;
+        public String url;
+        public int width;
+        public int height;
+        public double rating;
+        public List<String> tags;
+    }
+
+    public static class LoginForm {
+        private String username;
+        private String password;
+        @SerializedName("device_id")
+        private String deviceId;
+        private boolean rememberMe;
+        @SerializedName("client_version")
+        private int clientVersion;
+    }
+}
@@ -0,0 +1,49 @@
+package com.rainy.networkhelper.benchmark;
+
+import com.rainy.networkhelper.util.SerializationUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Java serialization of a small object graph to a Base64 string and back.
+ */
+@State(Scope.Benchmark)
+public class SerializationUtilBenchmark {
+    private HashMap<String, Object> value;
+    private String serialized;
+
+    @Setup
+    public void setUp() {
+        ArrayList<String> tags = new ArrayList<>();
+        tags.add("beach");
+        tags.add("sunset");
+
+        value = new HashMap<>();
+        value.put("id", 4815162342L);
+        value.put("title", "Summer holiday");
+        value.put("rating", 4.5);
+        value.put("tags", tags);
+        serialized = SerializationUtil.serialize(value);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return SerializationUtil.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return SerializationUtil.deserialize(serialized);
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        return SerializationUtil.deserialize(SerializationUtil.serialize(value));
+    }
+}
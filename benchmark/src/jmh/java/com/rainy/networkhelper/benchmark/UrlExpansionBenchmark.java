@@ -0,0 +1,65 @@
+package com.rainy.networkhelper.benchmark;
+
+import com.rainy.networkhelper.annotation.PathParam;
+import com.rainy.networkhelper.annotation.QueryParam;
+import com.rainy.networkhelper.annotation.RequestMethod;
+import com.rainy.networkhelper.util.ParamAccessor;
+import com.rainy.networkhelper.util.ReflectionUtil;
+import com.rainy.networkhelper.util.UrlTemplate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiling and expanding the URL templates, and {@code BaseRequest.getUrl()} itself, which reads
+ * the path and query parameters and expands the template again only when they have changed.
+ */
+@State(Scope.Benchmark)
+public class UrlExpansionBenchmark {
+    private SampleRequest request;
+    private String url;
+    private UrlTemplate template;
+    private List<ParamAccessor> pathAccessors;
+    private List<ParamAccessor> queryAccessors;
+    private Map<String, String> pathParams;
+    private Map<String, String> queryParams;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        request = new SampleRequest();
+        url = SampleRequest.class.getAnnotation(RequestMethod.class).url();
+        template = UrlTemplate.compile(url);
+        pathAccessors = ReflectionUtil.getParamAccessors(SampleRequest.class, PathParam.class);
+        queryAccessors = ReflectionUtil.getParamAccessors(SampleRequest.class, QueryParam.class);
+        pathParams = ParamExtractionBenchmark.read(pathAccessors, request);
+        queryParams = ParamExtractionBenchmark.read(queryAccessors, request);
+    }
+
+    @Benchmark
+    public UrlTemplate compile() {
+        return UrlTemplate.compile(url);
+    }
+
+    @Benchmark
+    public String expand() {
+        return template.expand(pathParams, queryParams);
+    }
+
+    @Benchmark
+    public String getUrl() {
+        return request.getUrl();
+    }
+
+    @Benchmark
+    public String getUrlOfChangedRequest() {
+        // a different cursor each time, so the URL is expanded again
+        request.addQueryParam("cursor", String.valueOf(++cursor));
+        return request.getUrl();
+    }
+}
@@ -0,0 +1,20 @@
+package android.os;
+
+/**
+ * Replaces the {@code Build} class of android-all, whose initializer reads the native
+ * system properties. It only has the version, which is reported as Nougat.
+ */
+public class Build {
+    public static class VERSION {
+        public static final int SDK_INT = VERSION_CODES.N;
+    }
+
+    public static class VERSION_CODES {
+        public static final int ICE_CREAM_SANDWICH = 14;
+        public static final int JELLY_BEAN = 16;
+        public static final int KITKAT = 19;
+        public static final int LOLLIPOP = 21;
+        public static final int M = 23;
+        public static final int N = 24;
+    }
+}
@@ -0,0 +1,19 @@
+package android.os;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaces the {@code SystemClock} class of android-all, whose methods are native.
+ */
+public final class SystemClock {
+    private SystemClock() {
+    }
+
+    public static long elapsedRealtime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    public static long uptimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
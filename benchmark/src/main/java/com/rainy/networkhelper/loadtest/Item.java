@@ -0,0 +1,14 @@
+package com.rainy.networkhelper.loadtest;
+
+import java.util.List;
+
+/**
+ * An element of the JSON array returned by {@link LoadTestServer}.
+ */
+public class Item {
+    public long id;
+    public String name;
+    public double price;
+    public boolean available;
+    public List<String> tags;
+}
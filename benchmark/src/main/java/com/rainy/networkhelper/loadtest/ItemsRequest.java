@@ -0,0 +1,20 @@
+package com.rainy.networkhelper.loadtest;
+
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.google.gson.reflect.TypeToken;
+import com.rainy.networkhelper.request.ParserRequest;
+import com.rainy.networkhelper.response.ParsedResponse;
+
+import java.util.List;
+
+/**
+ * Downloads the items from {@link LoadTestServer}.
+ */
+public class ItemsRequest extends ParserRequest<List<Item>> {
+    public ItemsRequest(String url, Response.Listener<ParsedResponse<List<Item>>> listener, Response.ErrorListener errorListener) {
+        super(Request.Method.GET, url, new TypeToken<List<Item>>() {
+        }.getType(), listener, errorListener);
+        setShouldCache(false);
+    }
+}
@@ -0,0 +1,413 @@
+package com.rainy.networkhelper.loadtest;
+
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.HurlStack;
+import com.android.volley.toolbox.NoCache;
+import com.rainy.networkhelper.delivery.DeliveryExecutors;
+import com.rainy.networkhelper.delivery.SwitchingResponseDelivery;
+import com.rainy.networkhelper.network.ChunkedHurlStack;
+import com.rainy.networkhelper.network.ConnectionStats;
+import com.rainy.networkhelper.network.OkHttpStack;
+import com.rainy.networkhelper.network.StreamingHttpStack;
+import com.rainy.networkhelper.request.BaseRequest;
+import com.rainy.networkhelper.response.ParsedResponse;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives {@link ItemsRequest}s through a {@link RequestQueue} against a {@link LoadTestServer},
+ * keeping a fixed number of requests in flight, and reports the throughput, the latency
+ * percentiles and the heap churn of every combination of the given configurations.
+ * Everything runs in this process on the loopback interface, so no network access is needed.
+ * <p>
+ * The options (lists are comma separated, and every combination is run):
+ * <pre>
+ * --stack hurl,chunked,streaming,okhttp
+ *                                  the HTTP stack of the queue (default: streaming)
+ * --threads 1,4,8                  the number of network dispatcher threads (default: 4)
+ * --delivery callback,direct,future
+ *                                  listeners called on the delivery thread, on the network
+ *                                  thread, or a blocking ExecutionFuture per client thread
+ *                                  (default: all of them)
+ * --requests 5000                  the number of measured requests per configuration
+ * --warmup 1000                    the number of requests sent before measuring
+ * --concurrency 32                 the number of requests in flight
+ * --latency 5 --jitter 5           the response time of the server in milliseconds
+ * --items 50                       the number of items in the response
+ * --error-rate 0.01                the ratio of the responses that fail with a 500 error
+ * </pre>
+ */
+public final class LoadTest {
+    private static final String STACK_HURL = "hurl";
+    private static final String STACK_CHUNKED = "chunked";
+    private static final String STACK_STREAMING = "streaming";
+    private static final String STACK_OKHTTP = "okhttp";
+    private static final String DELIVERY_CALLBACK = "callback";
+    private static final String DELIVERY_DIRECT = "direct";
+    private static final String DELIVERY_FUTURE = "future";
+
+    private final Options options;
+    private final LoadTestServer server;
+
+    private LoadTest(Options options, LoadTestServer server) {
+        this.options = options;
+        this.server = server;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        LoadTestServer server = new LoadTestServer(options.latencyMs, options.jitterMs, options.items, options.errorRate);
+        server.start();
+
+        System.out.println(String.format(Locale.US, "Server: %d bytes per response, %d+%d ms latency, %.2f%% errors; %d requests in flight",
+                server.getPayloadSize(), options.latencyMs, options.jitterMs, options.errorRate * 100, options.concurrency));
+        System.out.println(String.format(Locale.US, "%-10s %7s %-9s %8s %7s %9s %8s %8s %8s %10s %6s %7s",
+                "stack", "threads", "delivery", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "KB/req", "GCs", "GC ms"));
+
+        LoadTest loadTest = new LoadTest(options, server);
+        try {
+            for (String stack : options.stacks) {
+                for (int threads : options.threads) {
+                    for (String delivery : options.deliveries) {
+                        loadTest.run(stack, threads, delivery, options.warmup);
+                        System.out.println(loadTest.run(stack, threads, delivery, options.requests).format(stack, threads, delivery));
+                    }
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private Result run(String stack, int threads, String delivery, int count) throws Exception {
+        ExecutorService deliveryExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("LoadTest-Delivery"));
+        BaseHttpStack httpStack = createStack(stack);
+        RequestQueue queue = new RequestQueue(new NoCache(), new BasicNetwork(httpStack), threads, new SwitchingResponseDelivery(deliveryExecutor));
+        ExecutorService clients = Executors.newFixedThreadPool(options.concurrency, new NamedThreadFactory("LoadTest-Client"));
+        queue.start();
+        BaseRequest.setQueue(queue);
+
+        try {
+            Result result = new Result(count);
+            HeapChurn churn = HeapChurn.start();
+
+            long start = System.nanoTime();
+            if (DELIVERY_FUTURE.equals(delivery)) {
+                runWithFutures(stack, clients, result);
+            } else {
+                runWithCallbacks(stack, queue, DELIVERY_DIRECT.equals(delivery), result);
+            }
+            result.elapsedNs = System.nanoTime() - start;
+
+            churn.stop(result);
+            if (httpStack instanceof OkHttpStack)
+                result.connectionStats = ((OkHttpStack) httpStack).getStats();
+
+            return result;
+        } finally {
+            clients.shutdownNow();
+            queue.stop();
+            deliveryExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends the requests from this thread, waiting for a free slot before every request.
+     * The listeners are called on the delivery thread, like on the main thread of an app,
+     * or right on the network thread if {@code direct} is set.
+     */
+    private void runWithCallbacks(String stack, RequestQueue queue, boolean direct, final Result result) throws InterruptedException {
+        final Semaphore slots = new Semaphore(options.concurrency);
+        final CountDownLatch finished = new CountDownLatch(result.latencies.length);
+
+        for (int i = 0; i < result.latencies.length; i++) {
+            slots.acquire();
+
+            final long start = System.nanoTime();
+            ItemsRequest request = new ItemsRequest(server.getUrl(), new Response.Listener<ParsedResponse<List<Item>>>() {
+                @Override
+                public void onResponse(ParsedResponse<List<Item>> response) {
+                    result.record(System.nanoTime() - start, false);
+                    slots.release();
+                    finished.countDown();
+                }
+            }, new Response.ErrorListener() {
+                @Override
+                public void onErrorResponse(VolleyError error) {
+                    result.record(System.nanoTime() - start, true);
+                    slots.release();
+                    finished.countDown();
+                }
+            });
+            request.setStreamResponse(STACK_STREAMING.equals(stack));
+            if (direct)
+                request.setDeliveryExecutor(DeliveryExecutors.direct());
+            request.send(null, queue);
+        }
+
+        finished.await();
+    }
+
+    /**
+     * Sends the requests from a pool of client threads, each of them waiting for its
+     * request with {@link com.rainy.networkhelper.future.ExecutionFuture#get()}.
+     */
+    private void runWithFutures(final String stack, ExecutorService clients, final Result result) throws Exception {
+        final AtomicInteger next = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+
+        for (int i = 0; i < options.concurrency; i++) {
+            workers.add(clients.submit(new Runnable() {
+                @Override
+                public void run() {
+                    while (next.getAndIncrement() < result.latencies.length) {
+                        long start = System.nanoTime();
+                        ItemsRequest request = new ItemsRequest(server.getUrl(), null, null);
+                        request.setStreamResponse(STACK_STREAMING.equals(stack));
+
+                        boolean failed = false;
+                        try {
+                            request.getParsedFuture(null).get();
+                        } catch (ExecutionException e) {
+                            failed = true;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        result.record(System.nanoTime() - start, failed);
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> worker : workers)
+            worker.get();
+    }
+
+    private static BaseHttpStack createStack(String stack) {
+        switch (stack) {
+            case STACK_HURL:
+                return new HurlStack();
+            case STACK_CHUNKED:
+                return new ChunkedHurlStack();
+            case STACK_STREAMING:
+                return new StreamingHttpStack();
+            case STACK_OKHTTP:
+                return new OkHttpStack();
+            default:
+                throw new IllegalArgumentException("Unknown stack: " + stack);
+        }
+    }
+
+    /**
+     * The latencies and the heap churn of a single run.
+     */
+    private static class Result {
+        final long[] latencies;
+        final AtomicInteger recorded = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        long elapsedNs;
+        long allocatedBytes;
+        long gcCount;
+        long gcTimeMs;
+        ConnectionStats connectionStats;
+
+        Result(int count) {
+            this.latencies = new long[count];
+        }
+
+        void record(long latencyNs, boolean failed) {
+            latencies[recorded.getAndIncrement()] = latencyNs;
+            if (failed)
+                errors.incrementAndGet();
+        }
+
+        String format(String stack, int threads, String delivery) {
+            long[] sorted = Arrays.copyOf(latencies, recorded.get());
+            Arrays.sort(sorted);
+
+            String row = String.format(Locale.US, "%-10s %7d %-9s %8d %7d %9.0f %8.2f %8.2f %8.2f %10.1f %6d %7d",
+                    stack, threads, delivery, sorted.length, errors.get(),
+                    sorted.length / (elapsedNs / 1e9),
+                    percentile(sorted, 50) / 1e6, percentile(sorted, 99) / 1e6, percentile(sorted, 99.9) / 1e6,
+                    allocatedBytes / 1024.0 / Math.max(1, sorted.length), gcCount, gcTimeMs);
+
+            return connectionStats != null ? row + "\n    connections: " + connectionStats : row;
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0)
+                return 0;
+
+            int index = (int) Math.ceil(sorted.length * percentile / 100) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+    }
+
+    /**
+     * Measures the bytes allocated by the threads of the client (the server's threads are
+     * left out) and the garbage collections during a run. Threads that exit during the run
+     * are not counted, so the measured threads are kept alive until the end.
+     */
+    private static class HeapChurn {
+        private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private final Map<Long, Long> allocatedBefore;
+        private final long gcCountBefore;
+        private final long gcTimeBefore;
+
+        private HeapChurn() {
+            this.allocatedBefore = getAllocatedBytes();
+            this.gcCountBefore = getGcCount();
+            this.gcTimeBefore = getGcTimeMs();
+        }
+
+        static HeapChurn start() {
+            return new HeapChurn();
+        }
+
+        void stop(Result result) {
+            long allocated = 0;
+            for (Map.Entry<Long, Long> entry : getAllocatedBytes().entrySet()) {
+                Long before = allocatedBefore.get(entry.getKey());
+                allocated += entry.getValue() - (before != null ? before : 0);
+            }
+
+            result.allocatedBytes = allocated;
+            result.gcCount = getGcCount() - gcCountBefore;
+            result.gcTimeMs = getGcTimeMs() - gcTimeBefore;
+        }
+
+        private Map<Long, Long> getAllocatedBytes() {
+            Map<Long, Long> allocated = new HashMap<>();
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                String name = thread.getName();
+                if (name.startsWith(LoadTestServer.THREAD_NAME_PREFIX) || name.startsWith("HTTP-Dispatcher"))
+                    continue;
+
+                long bytes = threads.getThreadAllocatedBytes(thread.getId());
+                if (bytes >= 0)
+                    allocated.put(thread.getId(), bytes);
+            }
+
+            return allocated;
+        }
+
+        private static long getGcCount() {
+            long count = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+                count += Math.max(0, gc.getCollectionCount());
+
+            return count;
+        }
+
+        private static long getGcTimeMs() {
+            long time = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+                time += Math.max(0, gc.getCollectionTime());
+
+            return time;
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static class Options {
+        List<String> stacks = Arrays.asList(STACK_STREAMING);
+        List<Integer> threads = Arrays.asList(4);
+        List<String> deliveries = Arrays.asList(DELIVERY_CALLBACK, DELIVERY_DIRECT, DELIVERY_FUTURE);
+        int requests = 5000;
+        int warmup = 1000;
+        int concurrency = 32;
+        int latencyMs = 5;
+        int jitterMs = 5;
+        int items = 50;
+        double errorRate = 0;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--stack":
+                        options.stacks = Arrays.asList(value.split(","));
+                        break;
+                    case "--threads":
+                        options.threads = new ArrayList<>();
+                        for (String threads : value.split(","))
+                            options.threads.add(Integer.parseInt(threads));
+                        break;
+                    case "--delivery":
+                        options.deliveries = Arrays.asList(value.split(","));
+                        break;
+                    case "--requests":
+                        options.requests = Integer.parseInt(value);
+                        break;
+                    case "--warmup":
+                        options.warmup = Integer.parseInt(value);
+                        break;
+                    case "--concurrency":
+                        options.concurrency = Integer.parseInt(value);
+                        break;
+                    case "--latency":
+                        options.latencyMs = Integer.parseInt(value);
+                        break;
+                    case "--jitter":
+                        options.jitterMs = Integer.parseInt(value);
+                        break;
+                    case "--items":
+                        options.items = Integer.parseInt(value);
+                        break;
+                    case "--error-rate":
+                        options.errorRate = Double.parseDouble(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+
+            if (args.length % 2 != 0)
+                throw new IllegalArgumentException("Missing value of " + args[args.length - 1]);
+
+            for (String delivery : options.deliveries) {
+                if (!DELIVERY_CALLBACK.equals(delivery) && !DELIVERY_DIRECT.equals(delivery) && !DELIVERY_FUTURE.equals(delivery))
+                    throw new IllegalArgumentException("Unknown delivery: " + delivery);
+            }
+
+            return options;
+        }
+    }
+}
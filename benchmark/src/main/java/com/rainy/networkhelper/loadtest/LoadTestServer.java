@@ -0,0 +1,131 @@
+package com.rainy.networkhelper.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for the API server, listening on the loopback interface. Every request is
+ * answered with the same JSON array after the configured latency, or with a 500
+ * error at the configured rate.
+ */
+public class LoadTestServer {
+    static final String THREAD_NAME_PREFIX = "LoadTestServer-";
+    private static final byte[] ERROR_BODY = "{\"error\":\"internal\"}".getBytes(Charset.forName("UTF-8"));
+
+    private final int latencyMs;
+    private final int jitterMs;
+    private final double errorRate;
+    private final byte[] payload;
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param latencyMs   The minimum time to wait before answering.
+     * @param jitterMs    The maximum random time that is added to the latency.
+     * @param itemCount   The number of items in the returned JSON array, which controls the payload size.
+     * @param errorRate   The ratio of the requests that fail with a 500 error, between 0 and 1.
+     */
+    public LoadTestServer(int latencyMs, int jitterMs, int itemCount, double errorRate) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.payload = createPayload(itemCount);
+    }
+
+    static byte[] createPayload(int itemCount) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < itemCount; i++) {
+            if (i > 0)
+                json.append(',');
+
+            json.append("{\"id\":").append(i)
+                    .append(",\"name\":\"Item ").append(i)
+                    .append("\",\"price\":").append(random.nextInt(100000) / 100.0)
+                    .append(",\"available\":").append(random.nextBoolean())
+                    .append(",\"tags\":[\"sale\",\"new\"]}");
+        }
+
+        return json.append(']').toString().getBytes(Charset.forName("UTF-8"));
+    }
+
+    public void start() throws IOException {
+        // without this the response body waits for the delayed ACK of the headers
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/items", new ItemsHandler());
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The URL of the items endpoint.
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/items";
+    }
+
+    public int getPayloadSize() {
+        return payload.length;
+    }
+
+    private class ItemsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                InputStream in = exchange.getRequestBody();
+                while (in.read() != -1) {
+                    // drain the request body, so the connection can be reused
+                }
+
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int delay = latencyMs + (jitterMs > 0 ? random.nextInt(jitterMs + 1) : 0);
+                if (delay > 0)
+                    Thread.sleep(delay);
+
+                boolean error = errorRate > 0 && random.nextDouble() < errorRate;
+                byte[] body = error ? ERROR_BODY : payload;
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                exchange.sendResponseHeaders(error ? 500 : 200, body.length);
+
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
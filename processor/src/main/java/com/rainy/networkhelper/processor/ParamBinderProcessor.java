@@ -0,0 +1,383 @@
+package com.rainy.networkhelper.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor that generates a {@code ParamBinder} for every
+ * {@code BaseRequest} subclass annotated with {@code RequestMethod}.
+ * The binder reads the {@code PathParam}, {@code QueryParam} and
+ * {@code HeaderParam} fields and getters with direct calls, so the
+ * request doesn't have to use reflection for them.
+ * <p>
+ * It also checks that every declared path parameter has a matching
+ * {@code {placeholder}} in the URL of the request.
+ * <p>
+ * Classes that have a private parameter field without a public getter
+ * (or a private annotated method) can't be bound from generated code,
+ * so no binder is generated for them and they keep using reflection.
+ *
+ * @author Gabor Szanto
+ */
+public class ParamBinderProcessor extends AbstractProcessor {
+    private static final String ANNOTATION_PACKAGE = "com.rainy.networkhelper.annotation.";
+    private static final String REQUEST_METHOD = ANNOTATION_PACKAGE + "RequestMethod";
+    private static final String PATH_PARAM = ANNOTATION_PACKAGE + "PathParam";
+    private static final String QUERY_PARAM = ANNOTATION_PACKAGE + "QueryParam";
+    private static final String HEADER_PARAM = ANNOTATION_PACKAGE + "HeaderParam";
+    private static final String BASE_REQUEST = "com.rainy.networkhelper.request.BaseRequest";
+    private static final String PARAM_BINDER = "com.rainy.networkhelper.request.ParamBinder";
+    private static final String SUFFIX = "_ParamBinder";
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([^{}/]+)\\}");
+
+    private Elements elements;
+    private Messager messager;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(REQUEST_METHOD);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        elements = processingEnv.getElementUtils();
+        messager = processingEnv.getMessager();
+
+        TypeElement requestMethod = elements.getTypeElement(REQUEST_METHOD);
+        if (requestMethod == null)
+            return false;
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(requestMethod))) {
+            if (!isBaseRequest(type)) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "RequestMethod is only used on BaseRequest subclasses.", type);
+                continue;
+            }
+
+            process(type);
+        }
+
+        return false;
+    }
+
+    private void process(TypeElement type) {
+        PackageElement pkg = elements.getPackageOf(type);
+
+        List<Param> pathParams = new ArrayList<>();
+        List<Param> queryParams = new ArrayList<>();
+        List<Param> headerParams = new ArrayList<>();
+        boolean bindable = isVisible(type);
+
+        TypeElement klass = type;
+        while (klass != null && !klass.getQualifiedName().contentEquals(Object.class.getName())) {
+            for (VariableElement field : ElementFilter.fieldsIn(klass.getEnclosedElements())) {
+                bindable &= collect(type, pkg, field, PATH_PARAM, pathParams);
+                bindable &= collect(type, pkg, field, QUERY_PARAM, queryParams);
+                bindable &= collect(type, pkg, field, HEADER_PARAM, headerParams);
+            }
+
+            for (ExecutableElement method : ElementFilter.methodsIn(klass.getEnclosedElements())) {
+                bindable &= collect(type, pkg, method, PATH_PARAM, pathParams);
+                bindable &= collect(type, pkg, method, QUERY_PARAM, queryParams);
+                bindable &= collect(type, pkg, method, HEADER_PARAM, headerParams);
+            }
+
+            klass = getSuperclass(klass);
+        }
+
+        validateUrl(type, pathParams);
+
+        if (!bindable)
+            return;
+
+        try {
+            write(type, pkg, pathParams, queryParams, headerParams);
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Failed to generate ParamBinder: " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Adds the given member to the parameters if it is annotated with the given annotation.
+     *
+     * @return False if the member is annotated, but it can't be read from generated code.
+     */
+    private boolean collect(TypeElement type, PackageElement pkg, Element member, String annotation, List<Param> params) {
+        AnnotationMirror mirror = getAnnotation(member, annotation);
+        if (mirror == null)
+            return true;
+
+        String name = getName(mirror);
+        String memberName = member.getSimpleName().toString();
+
+        if (member.getKind() == ElementKind.METHOD) {
+            if (name.length() == 0) {
+                name = memberName;
+                if (name.startsWith("get") && name.length() > 3)
+                    name = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+            }
+
+            if (!isAccessible(member, pkg)) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "The method can't be called from the generated ParamBinder, so " + type.getSimpleName() + " will use reflection instead.", member);
+                params.add(new Param(name, null, null, false));
+                return false;
+            }
+
+            params.add(new Param(name, "request." + memberName + "()", null, isPrimitive(((ExecutableElement) member).getReturnType())));
+            return true;
+        }
+
+        if (name.length() == 0)
+            name = memberName;
+
+        ExecutableElement getter = findGetter(type, memberName);
+        String getterExpression = getter != null ? "request." + getter.getSimpleName() + "()" : null;
+        String fieldExpression = isAccessible(member, pkg) ? "request." + memberName : null;
+
+        if (getterExpression == null && fieldExpression == null) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "The field has no public getter and can't be read from the generated ParamBinder, so " + type.getSimpleName() + " will use reflection instead.", member);
+            params.add(new Param(name, null, null, false));
+            return false;
+        }
+
+        if (getterExpression != null) {
+            params.add(new Param(name, getterExpression, fieldExpression, isPrimitive(getter.getReturnType())));
+        } else {
+            params.add(new Param(name, fieldExpression, null, isPrimitive(member.asType())));
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the getter of a field the same way as {@code ReflectionUtil.runGetter} does it at runtime.
+     */
+    private ExecutableElement findGetter(TypeElement type, String fieldName) {
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            String name = method.getSimpleName().toString();
+            if (method.getModifiers().contains(Modifier.PUBLIC) && method.getParameters().isEmpty()
+                    && method.getReturnType().getKind() != TypeKind.VOID
+                    && name.startsWith("get") && name.length() == fieldName.length() + 3
+                    && name.toLowerCase().endsWith(fieldName.toLowerCase())) {
+                return method;
+            }
+        }
+
+        return null;
+    }
+
+    private void validateUrl(TypeElement type, List<Param> pathParams) {
+        String url = getUrl(type);
+        if (url == null)
+            return;
+
+        Set<String> placeholders = new LinkedHashSet<>();
+        Matcher matcher = PLACEHOLDER.matcher(url);
+        while (matcher.find())
+            placeholders.add(matcher.group(1));
+
+        Set<String> declared = new LinkedHashSet<>();
+        for (Param param : pathParams) {
+            declared.add(param.name);
+            if (!placeholders.contains(param.name))
+                messager.printMessage(Diagnostic.Kind.ERROR, "The path parameter '" + param.name + "' has no {" + param.name + "} placeholder in the URL \"" + url + "\".", type);
+        }
+
+        for (String placeholder : placeholders) {
+            if (!declared.contains(placeholder))
+                messager.printMessage(Diagnostic.Kind.WARNING, "The placeholder {" + placeholder + "} of the URL \"" + url + "\" has no matching path parameter, so it must be set with setPathParam().", type);
+        }
+    }
+
+    private void write(TypeElement type, PackageElement pkg, List<Param> pathParams, List<Param> queryParams, List<Param> headerParams) throws IOException {
+        String binderName = getBinderName(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String requestType = type.getQualifiedName().toString();
+        if (!type.getTypeParameters().isEmpty())
+            requestType += "<?>";
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName.length() > 0 ? packageName + "." + binderName : binderName, type);
+        PrintWriter out = new PrintWriter(file.openWriter());
+        try {
+            out.println("// Generated by the NetworkHelper annotation processor. Do not modify!");
+            if (packageName.length() > 0) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import java.util.Map;");
+            out.println();
+            out.println("public final class " + binderName + " implements " + PARAM_BINDER + "<" + requestType + "> {");
+            writeMethod(out, "bindPathParams", requestType, pathParams);
+            out.println();
+            writeMethod(out, "bindQueryParams", requestType, queryParams);
+            out.println();
+            writeMethod(out, "bindHeaderParams", requestType, headerParams);
+            out.println();
+            out.println("    private static void put(Map<String, String> into, String name, Object value) {");
+            out.println("        if (value != null)");
+            out.println("            into.put(name, value.toString());");
+            out.println("    }");
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeMethod(PrintWriter out, String name, String requestType, List<Param> params) {
+        out.println("    @Override");
+        out.println("    public void " + name + "(" + requestType + " request, Map<String, String> into) {");
+        for (Param param : params) {
+            if (param.fallbackExpression != null && !param.primitive) {
+                out.println("        {");
+                out.println("            Object value = " + param.expression + ";");
+                out.println("            put(into, \"" + escape(param.name) + "\", value != null ? value : " + param.fallbackExpression + ");");
+                out.println("        }");
+            } else {
+                out.println("        put(into, \"" + escape(param.name) + "\", " + param.expression + ");");
+            }
+        }
+        out.println("    }");
+    }
+
+    private static String getBinderName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing instanceof TypeElement) {
+            name = enclosing.getSimpleName() + "_" + name;
+            enclosing = enclosing.getEnclosingElement();
+        }
+
+        return name + SUFFIX;
+    }
+
+    private boolean isBaseRequest(TypeElement type) {
+        for (TypeElement klass = type; klass != null; klass = getSuperclass(klass)) {
+            if (klass.getQualifiedName().contentEquals(BASE_REQUEST))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return Whether the generated class (which is in the same package) can refer to the given type.
+     */
+    private static boolean isVisible(TypeElement type) {
+        Element element = type;
+        while (element instanceof TypeElement) {
+            if (element.getModifiers().contains(Modifier.PRIVATE))
+                return false;
+            element = element.getEnclosingElement();
+        }
+
+        return true;
+    }
+
+    private boolean isAccessible(Element member, PackageElement pkg) {
+        Set<Modifier> modifiers = member.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE))
+            return false;
+        if (modifiers.contains(Modifier.PUBLIC))
+            return true;
+
+        return elements.getPackageOf(member).equals(pkg);
+    }
+
+    private static boolean isPrimitive(TypeMirror type) {
+        return type.getKind().isPrimitive();
+    }
+
+    private static TypeElement getSuperclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED)
+            return null;
+
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+
+    private static AnnotationMirror getAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation))
+                return mirror;
+        }
+
+        return null;
+    }
+
+    private static String getName(AnnotationMirror mirror) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("name"))
+                return String.valueOf(entry.getValue().getValue());
+        }
+
+        return "";
+    }
+
+    private String getUrl(TypeElement type) {
+        AnnotationMirror mirror = getAnnotation(type, REQUEST_METHOD);
+        if (mirror == null)
+            return null;
+
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("url"))
+                return String.valueOf(entry.getValue().getValue());
+        }
+
+        return null;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static class Param {
+        final String name;
+        /**
+         * The expression that reads the value, or null if it can't be read from generated code.
+         */
+        final String expression;
+        final String fallbackExpression;
+        final boolean primitive;
+
+        Param(String name, String expression, String fallbackExpression, boolean primitive) {
+            this.name = name;
+            this.expression = expression;
+            this.fallbackExpression = fallbackExpression;
+            this.primitive = primitive;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.rainy.networkhelper.processor;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.junit.Assert.assertTrue;
+
+public class ParamBinderProcessorTest {
+    /**
+     * The processor only looks at the qualified names, so these stand in for the library classes.
+     */
+    private static final JavaFileObject[] LIBRARY = {
+            JavaFileObjects.forSourceLines("com.rainy.networkhelper.annotation.RequestMethod",
+                    "package com.rainy.networkhelper.annotation;",
+                    "public @interface RequestMethod {",
+                    "    int method() default 0;",
+                    "    String url();",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.rainy.networkhelper.annotation.PathParam",
+                    "package com.rainy.networkhelper.annotation;",
+                    "public @interface PathParam {",
+                    "    String name() default \"\";",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.rainy.networkhelper.annotation.QueryParam",
+                    "package com.rainy.networkhelper.annotation;",
+                    "public @interface QueryParam {",
+                    "    String name() default \"\";",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.rainy.networkhelper.annotation.HeaderParam",
+                    "package com.rainy.networkhelper.annotation;",
+                    "public @interface HeaderParam {",
+                    "    String name() default \"\";",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.rainy.networkhelper.request.BaseRequest",
+                    "package com.rainy.networkhelper.request;",
+                    "public abstract class BaseRequest<T> {",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.rainy.networkhelper.request.ParamBinder",
+                    "package com.rainy.networkhelper.request;",
+                    "import java.util.Map;",
+                    "public interface ParamBinder<R> {",
+                    "    void bindPathParams(R request, Map<String, String> into);",
+                    "    void bindQueryParams(R request, Map<String, String> into);",
+                    "    void bindHeaderParams(R request, Map<String, String> into);",
+                    "}"),
+    };
+
+    private static Compilation compile(JavaFileObject... sources) {
+        List<JavaFileObject> files = new ArrayList<>(Arrays.asList(LIBRARY));
+        files.addAll(Arrays.asList(sources));
+        return javac().withProcessors(new ParamBinderProcessor()).compile(files);
+    }
+
+    /**
+     * @return The lines as they are written by a PrintWriter.
+     */
+    private static String lines(String... lines) {
+        StringBuilder result = new StringBuilder();
+        for (String line : lines)
+            result.append(line).append(System.getProperty("line.separator"));
+
+        return result.toString();
+    }
+
+    @Test
+    public void generatesBinder() {
+        JavaFileObject request = JavaFileObjects.forSourceLines("test.UserRequest",
+                "package test;",
+                "import com.rainy.networkhelper.annotation.*;",
+                "import com.rainy.networkhelper.request.BaseRequest;",
+                "@RequestMethod(url = \"http://somedomain.com/users/{user_id}\")",
+                "public class UserRequest extends BaseRequest<String> {",
+                "    @PathParam(name = \"user_id\")",
+                "    private Integer id;",
+                "    @QueryParam",
+                "    int page;",
+                "    @HeaderParam(name = \"Authorization\")",
+                "    public String getToken() {",
+                "        return null;",
+                "    }",
+                "    public Integer getId() {",
+                "        return id;",
+                "    }",
+                "}");
+
+        Compilation compilation = compile(request);
+        assertThat(compilation).succeededWithoutWarnings();
+        assertThat(compilation).generatedSourceFile("test.UserRequest_ParamBinder").contentsAsUtf8String().isEqualTo(lines(
+                "// Generated by the NetworkHelper annotation processor. Do not modify!",
+                "package test;",
+                "",
+                "import java.util.Map;",
+                "",
+                "public final class UserRequest_ParamBinder implements com.rainy.networkhelper.request.ParamBinder<test.UserRequest> {",
+                "    @Override",
+                "    public void bindPathParams(test.UserRequest request, Map<String, String> into) {",
+                "        put(into, \"user_id\", request.getId());",
+                "    }",
+                "",
+                "    @Override",
+                "    public void bindQueryParams(test.UserRequest request, Map<String, String> into) {",
+                "        put(into, \"page\", request.page);",
+                "    }",
+                "",
+                "    @Override",
+                "    public void bindHeaderParams(test.UserRequest request, Map<String, String> into) {",
+                "        put(into, \"Authorization\", request.getToken());",
+                "    }",
+                "",
+                "    private static void put(Map<String, String> into, String name, Object value) {",
+                "        if (value != null)",
+                "            into.put(name, value.toString());",
+                "    }",
+                "}"));
+    }
+
+    @Test
+    public void fallsBackToFieldWhenGetterReturnsNull() {
+        JavaFileObject request = JavaFileObjects.forSourceLines("test.ItemRequest",
+                "package test;",
+                "import com.rainy.networkhelper.annotation.*;",
+                "import com.rainy.networkhelper.request.BaseRequest;",
+                "@RequestMethod(url = \"http://somedomain.com/items\")",
+                "public class ItemRequest extends BaseRequest<String> {",
+                "    @QueryParam",
+                "    String name;",
+                "    public String getName() {",
+                "        return name;",
+                "    }",
+                "}");
+
+        Compilation compilation = compile(request);
+        assertThat(compilation).succeededWithoutWarnings();
+        assertThat(compilation).generatedSourceFile("test.ItemRequest_ParamBinder").contentsAsUtf8String()
+                .contains("put(into, \"name\", value != null ? value : request.name);");
+    }
+
+    @Test
+    public void missingPlaceholderIsAnError() {
+        JavaFileObject request = JavaFileObjects.forSourceLines("test.UserRequest",
+                "package test;",
+                "import com.rainy.networkhelper.annotation.*;",
+                "import com.rainy.networkhelper.request.BaseRequest;",
+                "@RequestMethod(url = \"http://somedomain.com/users\")",
+                "public class UserRequest extends BaseRequest<String> {",
+                "    @PathParam",
+                "    public String id;",
+                "}");
+
+        Compilation compilation = compile(request);
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("The path parameter 'id' has no {id} placeholder")
+                .inFile(request).onLine(5);
+    }
+
+    @Test
+    public void unusedPlaceholderIsAWarning() {
+        JavaFileObject request = JavaFileObjects.forSourceLines("test.UserRequest",
+                "package test;",
+                "import com.rainy.networkhelper.annotation.*;",
+                "import com.rainy.networkhelper.request.BaseRequest;",
+                "@RequestMethod(url = \"http://somedomain.com/users/{id}/{tab}\")",
+                "public class UserRequest extends BaseRequest<String> {",
+                "    @PathParam",
+                "    public String id;",
+                "}");
+
+        Compilation compilation = compile(request);
+        assertThat(compilation).succeeded();
+        assertThat(compilation).hadWarningContaining("The placeholder {tab}").inFile(request).onLine(5);
+        assertThat(compilation).generatedSourceFile("test.UserRequest_ParamBinder");
+    }
+
+    @Test
+    public void inaccessibleFieldFallsBackToReflection() {
+        JavaFileObject request = JavaFileObjects.forSourceLines("test.UserRequest",
+                "package test;",
+                "import com.rainy.networkhelper.annotation.*;",
+                "import com.rainy.networkhelper.request.BaseRequest;",
+                "@RequestMethod(url = \"http://somedomain.com/users\")",
+                "public class UserRequest extends BaseRequest<String> {",
+                "    @QueryParam",
+                "    private String filter;",
+                "    public String getFilter(int index) {",
+                "        return filter;",
+                "    }",
+                "}");
+
+        Compilation compilation = compile(request);
+        assertThat(compilation).succeeded();
+        assertThat(compilation).hadWarningContaining("The field has no public getter").inFile(request).onLine(7);
+        assertTrue(compilation.generatedSourceFiles().isEmpty());
+    }
+
+    @Test
+    public void inaccessibleMethodFallsBackToReflection() {
+        JavaFileObject request = JavaFileObjects.forSourceLines("test.UserRequest",
+                "package test;",
+                "import com.rainy.networkhelper.annotation.*;",
+                "import com.rainy.networkhelper.request.BaseRequest;",
+                "@RequestMethod(url = \"http://somedomain.com/users\")",
+                "public class UserRequest extends BaseRequest<String> {",
+                "    @HeaderParam",
+                "    private String getToken() {",
+                "        return null;",
+                "    }",
+                "}");
+
+        Compilation compilation = compile(request);
+        assertThat(compilation).succeeded();
+        assertThat(compilation).hadWarningContaining("The method can't be called").inFile(request).onLine(7);
+        assertTrue(compilation.generatedSourceFiles().isEmpty());
+    }
+
+    @Test
+    public void privateRequestClassFallsBackToReflection() {
+        JavaFileObject request = JavaFileObjects.forSourceLines("test.Requests",
+                "package test;",
+                "import com.rainy.networkhelper.annotation.*;",
+                "import com.rainy.networkhelper.request.BaseRequest;",
+                "public class Requests {",
+                "    @RequestMethod(url = \"http://somedomain.com/users\")",
+                "    private static class UserRequest extends BaseRequest<String> {",
+                "        @QueryParam",
+                "        public String filter;",
+                "    }",
+                "}");
+
+        Compilation compilation = compile(request);
+        assertThat(compilation).succeededWithoutWarnings();
+        assertTrue(compilation.generatedSourceFiles().isEmpty());
+    }
+
+    @Test
+    public void nestedClassBinderName() {
+        JavaFileObject request = JavaFileObjects.forSourceLines("test.Requests",
+                "package test;",
+                "import com.rainy.networkhelper.annotation.*;",
+                "import com.rainy.networkhelper.request.BaseRequest;",
+                "public class Requests {",
+                "    @RequestMethod(url = \"http://somedomain.com/users\")",
+                "    public static class UserRequest extends BaseRequest<String> {",
+                "    }",
+                "}");
+
+        Compilation compilation = compile(request);
+        assertThat(compilation).succeededWithoutWarnings();
+        assertThat(compilation).generatedSourceFile("test.Requests_UserRequest_ParamBinder");
+    }
+
+    @Test
+    public void requestMethodOutsideBaseRequestIsAWarning() {
+        JavaFileObject request = JavaFileObjects.forSourceLines("test.NotARequest",
+                "package test;",
+                "import com.rainy.networkhelper.annotation.*;",
+                "@RequestMethod(url = \"http://somedomain.com/users\")",
+                "public class NotARequest {",
+                "}");
+
+        Compilation compilation = compile(request);
+        assertThat(compilation).succeeded();
+        assertThat(compilation).hadWarningContaining("RequestMethod is only used on BaseRequest subclasses.").inFile(request).onLine(4);
+        assertTrue(compilation.generatedSourceFiles().isEmpty());
+    }
+}
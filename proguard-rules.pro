@@ -0,0 +1,18 @@
+# The ParamBinder classes generated by the NetworkHelper annotation processor
+# are looked up by name, so their names and constructors must be kept.
+-keep class * implements com.rainy.networkhelper.request.ParamBinder {
+    public <init>();
+}
+
+# The optional libraries are only needed by the classes that use them
+# (OkHttpStack and the binary mappers), so they may be missing from the app.
+-dontwarn okhttp3.**
+-dontwarn okio.**
+-dontwarn com.google.protobuf.**
+-dontwarn org.msgpack.**
+-dontwarn com.fasterxml.jackson.**
+
+# ProtobufBodyMapper looks up the parsers of the response types from their default instance.
+-keepclassmembers class * extends com.google.protobuf.GeneratedMessageLite {
+    public static ** getDefaultInstance();
+}
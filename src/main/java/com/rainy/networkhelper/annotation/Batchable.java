@@ -0,0 +1,33 @@
+package com.rainy.networkhelper.annotation;
+
+import com.rainy.networkhelper.batch.BatchCodec;
+import com.rainy.networkhelper.batch.JsonBatchCodec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation that can be used on a @{link BaseRequest} class to send its instances in batches.
+ * The requests sent within {@link #windowMs()} of each other (or until {@link #maxSize()}
+ * of them are collected) are encoded into a single request with the given {@link #codec()},
+ * and sent to the given batch endpoint. The batch response is split back, and each
+ * request gets its own response or error.
+ * <p>
+ * Note: batched requests are not cached by Volley.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Batchable {
+    /**
+     * The URL of the batch endpoint.
+     */
+    String url();
+
+    int maxSize() default 20;
+
+    int windowMs() default 10;
+
+    Class<? extends BatchCodec> codec() default JsonBatchCodec.class;
+}
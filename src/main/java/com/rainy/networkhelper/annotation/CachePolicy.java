@@ -0,0 +1,45 @@
+package com.rainy.networkhelper.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation that can be used on a @{link BaseRequest} class to cache its responses
+ * on the client side, even if the server doesn't send cache headers.
+ * <p>
+ * If {@link #softTtl()} is shorter than {@link #ttl()}, the responses are revalidated in the
+ * background (stale-while-revalidate): when the soft TTL has elapsed, the cached response is
+ * delivered right away, the request is sent, and its response is only delivered again if it
+ * has changed.
+ * <p>
+ * All of the values are in seconds.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CachePolicy {
+    /**
+     * The time after which the cached response expires, and can't be delivered anymore.
+     */
+    int ttl();
+
+    /**
+     * The time after which the cached response has to be refreshed. By default it is the same as {@link #ttl()}.
+     */
+    int softTtl() default -1;
+
+    /**
+     * The time after the expiry during which the expired response is still delivered
+     * if the request fails with a server error (5xx) or without a response, like a
+     * timeout. Client errors (4xx) are delivered as they are, since they mean that
+     * the response is no longer valid. By default expired responses are never delivered.
+     */
+    int staleIfError() default 0;
+
+    /**
+     * Whether the policy overrides the cache headers sent by the server. By default it is only
+     * used for the responses that don't have cache headers.
+     */
+    boolean override() default false;
+}
@@ -0,0 +1,23 @@
+package com.rainy.networkhelper.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation that can be used on a @{link ParserRequest} class to gzip its encoded
+ * request body, and send it with a {@code Content-Encoding: gzip} header. The server
+ * must be able to decompress request bodies.
+ * <p>
+ * Small bodies barely compress, so only the bodies of at least {@link #minSize()} bytes
+ * are compressed. Streamed bodies are always compressed, because their size is not known up front.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CompressBody {
+    /**
+     * The size of the encoded body in bytes, from which it is compressed.
+     */
+    int minSize() default 1024;
+}
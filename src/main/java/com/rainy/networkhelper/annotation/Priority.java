@@ -0,0 +1,20 @@
+package com.rainy.networkhelper.annotation;
+
+import com.android.volley.Request;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation that can be used on a @{link BaseRequest} class to set the priority of its requests,
+ * both in Volley's queue and in the executor of the futures. It can be changed per request with
+ * {@code setPriority()}. The lower priority requests are aged upward while they wait (see
+ * {@link com.rainy.networkhelper.util.PriorityAging}), so they are never starved.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Priority {
+    Request.Priority value();
+}
@@ -0,0 +1,17 @@
+package com.rainy.networkhelper.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation that can be used on a @{link BaseRequest} class to send its requests to a named
+ * queue of the {@link com.rainy.networkhelper.queue.RequestQueueRegistry} instead of the default
+ * queue. It can be changed per request with {@code setQueueName()} or {@code send(context, queueName)}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface QueueName {
+    String value();
+}
@@ -0,0 +1,45 @@
+package com.rainy.networkhelper.annotation;
+
+import com.android.volley.NetworkError;
+import com.android.volley.ServerError;
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation that can be used on a @{link BaseRequest} class to retry it with exponential
+ * backoff and decorrelated jitter, instead of Volley's default single retry. By default the
+ * request also goes through the circuit breaker of its host (see {@code CircuitBreaker}).
+ * <p>
+ * The request waits for the delay between the attempts outside of the queue, so it doesn't
+ * hold a network thread.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Retry {
+    /**
+     * The maximum number of attempts, including the first one.
+     */
+    int maxAttempts() default 3;
+
+    int baseDelayMs() default 100;
+
+    int maxDelayMs() default 5000;
+
+    /**
+     * The errors that are retried. Client errors (4xx) are only retried if
+     * {@link com.android.volley.ClientError} is listed explicitly.
+     */
+    Class<? extends VolleyError>[] retryOn() default {TimeoutError.class, NetworkError.class, ServerError.class};
+
+    /**
+     * The timeout of each attempt.
+     */
+    int timeoutMs() default 2500;
+
+    boolean circuitBreaker() default true;
+}
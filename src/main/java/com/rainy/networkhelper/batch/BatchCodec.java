@@ -0,0 +1,35 @@
+package com.rainy.networkhelper.batch;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the requests of a batch into a single request body, and splits the batch
+ * response back into the responses of the requests. It only works on bytes, so it can
+ * be tested without Volley, against any server that speaks the same format.
+ * <p>
+ * Implementations must have a public no-arg constructor, and must be thread safe.
+ */
+public interface BatchCodec {
+    /**
+     * @return The content type of the encoded batch.
+     */
+    String getContentType();
+
+    /**
+     * Encodes the given requests into the body of the batch request.
+     *
+     * @param parts The requests of the batch.
+     * @return The body of the batch request.
+     */
+    byte[] encode(List<BatchPart> parts) throws Exception;
+
+    /**
+     * Splits the body of the batch response.
+     *
+     * @param data    The body of the batch response.
+     * @param headers The headers of the batch response.
+     * @return The responses to the requests, in the same order as they were encoded.
+     */
+    List<BatchPartResponse> decode(byte[] data, Map<String, String> headers) throws Exception;
+}
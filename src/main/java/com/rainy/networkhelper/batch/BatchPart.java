@@ -0,0 +1,49 @@
+package com.rainy.networkhelper.batch;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * One of the requests of a batch, as it is given to the {@link BatchCodec}.
+ */
+public final class BatchPart {
+    private final String method;
+    private final String url;
+    private final Map<String, String> headers;
+    private final byte[] body;
+    private final String bodyContentType;
+
+    public BatchPart(String method, String url, Map<String, String> headers, byte[] body, String bodyContentType) {
+        this.method = method;
+        this.url = url;
+        this.headers = headers != null ? headers : Collections.<String, String>emptyMap();
+        this.body = body;
+        this.bodyContentType = bodyContentType;
+    }
+
+    /**
+     * @return The name of the HTTP method, like GET.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return The body of the request, or null if it has none.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getBodyContentType() {
+        return bodyContentType;
+    }
+}
@@ -0,0 +1,31 @@
+package com.rainy.networkhelper.batch;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The response to one of the requests of a batch, as it is returned by the {@link BatchCodec}.
+ */
+public final class BatchPartResponse {
+    private final int statusCode;
+    private final Map<String, String> headers;
+    private final byte[] body;
+
+    public BatchPartResponse(int statusCode, Map<String, String> headers, byte[] body) {
+        this.statusCode = statusCode;
+        this.headers = headers != null ? headers : Collections.<String, String>emptyMap();
+        this.body = body != null ? body : new byte[0];
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+}
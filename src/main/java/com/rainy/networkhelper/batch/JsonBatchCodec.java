@@ -0,0 +1,220 @@
+package com.rainy.networkhelper.batch;
+
+import com.google.common.io.BaseEncoding;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * {@link BatchCodec} that encodes the batch as a JSON array. The requests are encoded like this:
+ * <pre>
+ * [{"method": "GET", "url": "http://somedomain.com/items/1", "headers": {"Accept": "application/json"}},
+ *  {"method": "POST", "url": "http://somedomain.com/items", "headers": {"Content-Type": "application/json"}, "body": "{\"name\":\"item\"}"}]
+ * </pre>
+ * And the response must be an array with the same number of elements:
+ * <pre>
+ * [{"status": 200, "headers": {"ETag": "1"}, "body": {"id": 1}},
+ *  {"status": 409, "body": "already exists"}]
+ * </pre>
+ * Text bodies (like JSON, XML, form or text/* bodies without a Content-Encoding) are encoded as
+ * strings. Other bodies, like compressed or binary ones, are encoded in Base64 and flagged with
+ * {@code "bodyEncoding": "base64"}, in the requests and the responses alike. In the response, a
+ * body can also be any JSON value, which is then passed on as it is.
+ * <p>
+ * The text bodies of the responses are passed on in UTF-8, so their Content-Type is given a
+ * {@code charset=UTF-8} parameter, or is set to {@code application/json; charset=UTF-8} if the
+ * server didn't send one.
+ */
+public class JsonBatchCodec implements BatchCodec {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String BASE64 = "base64";
+    private static final String DEFAULT_CONTENT_TYPE = "application/json; charset=UTF-8";
+    private static final Pattern CHARSET = Pattern.compile(";\\s*charset=[^;]*", Pattern.CASE_INSENSITIVE);
+
+    @Override
+    public String getContentType() {
+        return "application/json; charset=utf-8";
+    }
+
+    @Override
+    public byte[] encode(List<BatchPart> parts) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, UTF_8));
+
+        writer.beginArray();
+        for (BatchPart part : parts) {
+            writer.beginObject();
+            writer.name("method").value(part.getMethod());
+            writer.name("url").value(part.getUrl());
+
+            writer.name("headers").beginObject();
+            for (Map.Entry<String, String> header : part.getHeaders().entrySet())
+                writer.name(header.getKey()).value(header.getValue());
+            if (part.getBody() != null && part.getBodyContentType() != null && getIgnoreCase(part.getHeaders(), CONTENT_TYPE) == null)
+                writer.name(CONTENT_TYPE).value(part.getBodyContentType());
+            writer.endObject();
+
+            if (part.getBody() != null) {
+                String contentType = getIgnoreCase(part.getHeaders(), CONTENT_TYPE);
+                String text = getIgnoreCase(part.getHeaders(), CONTENT_ENCODING) == null
+                        ? toText(part.getBody(), contentType != null ? contentType : part.getBodyContentType()) : null;
+
+                if (text != null) {
+                    writer.name("body").value(text);
+                } else {
+                    writer.name("body").value(BaseEncoding.base64().encode(part.getBody()));
+                    writer.name("bodyEncoding").value(BASE64);
+                }
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+
+        writer.close();
+        return out.toByteArray();
+    }
+
+    @Override
+    public List<BatchPartResponse> decode(byte[] data, Map<String, String> headers) throws Exception {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(data), UTF_8));
+        List<BatchPartResponse> responses = new ArrayList<>();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int status = 0;
+            Map<String, String> partHeaders = new HashMap<>();
+            byte[] body = null;
+            String encodedBody = null;
+            String bodyEncoding = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("status".equals(name)) {
+                    status = reader.nextInt();
+                } else if ("headers".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    reader.beginObject();
+                    while (reader.hasNext())
+                        partHeaders.put(reader.nextName(), reader.nextString());
+                    reader.endObject();
+                } else if ("body".equals(name)) {
+                    if (reader.peek() == JsonToken.STRING)
+                        encodedBody = reader.nextString();
+                    else
+                        body = readBody(reader);
+                } else if ("bodyEncoding".equals(name) && reader.peek() == JsonToken.STRING) {
+                    bodyEncoding = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (status == 0)
+                throw new IllegalArgumentException("batch response #" + responses.size() + " has no status");
+
+            boolean base64 = bodyEncoding != null;
+            if (base64 && !BASE64.equalsIgnoreCase(bodyEncoding))
+                throw new IllegalArgumentException("batch response #" + responses.size() + " has an unknown body encoding: " + bodyEncoding);
+            if (encodedBody != null)
+                body = base64 ? BaseEncoding.base64().decode(encodedBody) : encodedBody.getBytes(UTF_8);
+
+            // the text bodies have been decoded from the JSON, and are passed on in UTF-8
+            if (body != null && !base64)
+                setUtf8ContentType(partHeaders);
+
+            responses.add(new BatchPartResponse(status, partHeaders, body));
+        }
+        reader.endArray();
+
+        return responses;
+    }
+
+    private static byte[] readBody(JsonReader reader) throws Exception {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        JsonElement element = new JsonParser().parse(reader);
+        return element.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * @return The body as a string if it is text in UTF-8, or null if it has to be encoded in Base64.
+     */
+    private static String toText(byte[] body, String contentType) {
+        if (!isText(contentType))
+            return null;
+
+        try {
+            return UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(body))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    private static boolean isText(String contentType) {
+        if (contentType == null)
+            return false;
+
+        String type = contentType.toLowerCase(Locale.US);
+        int parameters = type.indexOf(';');
+        if (parameters >= 0)
+            type = type.substring(0, parameters);
+        type = type.trim();
+
+        return type.startsWith("text/") || type.equals("application/json") || type.endsWith("+json")
+                || type.equals("application/xml") || type.endsWith("+xml")
+                || type.equals("application/x-www-form-urlencoded");
+    }
+
+    /**
+     * Sets the charset of the Content-Type header to UTF-8, or sets the header to JSON if there is none.
+     */
+    private static void setUtf8ContentType(Map<String, String> headers) {
+        String name = CONTENT_TYPE;
+        for (String header : headers.keySet()) {
+            if (header.equalsIgnoreCase(CONTENT_TYPE))
+                name = header;
+        }
+
+        String contentType = headers.get(name);
+        if (contentType == null || contentType.trim().length() == 0)
+            headers.put(name, DEFAULT_CONTENT_TYPE);
+        else
+            headers.put(name, CHARSET.matcher(contentType).replaceAll("") + "; charset=UTF-8");
+    }
+
+    private static String getIgnoreCase(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name))
+                return header.getValue();
+        }
+
+        return null;
+    }
+}
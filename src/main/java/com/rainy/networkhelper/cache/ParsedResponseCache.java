@@ -0,0 +1,266 @@
+package com.rainy.networkhelper.cache;
+
+import android.util.LruCache;
+
+import com.rainy.networkhelper.response.ParsedResponse;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded in-memory cache of parsed responses, which sits in front of Volley's
+ * disk cache. Volley's cache stores the raw response bodies, so every cache hit would
+ * decode the body again. This cache keeps the decoded {@link ParsedResponse}s, keyed by
+ * the cache key of the request and the type of the response.
+ * <p>
+ * The entries expire with the same TTL and soft TTL as the {@code Cache.Entry} of the
+ * response. Each entry also keeps the body it was decoded from, so when the underlying
+ * entry is refreshed with a different body, the cached object is not used anymore. The
+ * weight of an entry is the size of its body in bytes.
+ * <p>
+ * Every lookup counts as a hit or a miss, see {@link #getHitCount()} and {@link #getMissCount()}.
+ * <p>
+ * The cached objects are shared between the requests, so they must not be modified.
+ */
+public class ParsedResponseCache {
+    private final Entries entries;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param maxWeight The maximum total size of the cached response bodies in bytes.
+     */
+    public ParsedResponseCache(int maxWeight) {
+        this.entries = new Entries(maxWeight);
+    }
+
+    /**
+     * Returns the cached response if it doesn't need to be refreshed yet (its soft TTL hasn't elapsed).
+     *
+     * @param cacheKey The cache key of the request.
+     * @param type     The type of the parsed response.
+     * @return The cached response, or null if there isn't a fresh one.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ParsedResponse<T> getFresh(String cacheKey, Type type) {
+        Entry entry = entries.get(new Key(cacheKey, type));
+        if (entry == null || entry.softTtl < System.currentTimeMillis()) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        return (ParsedResponse<T>) entry.response;
+    }
+
+    /**
+     * Returns the cached response if it has been parsed from the same body and it hasn't expired yet.
+     *
+     * @param cacheKey The cache key of the request.
+     * @param type     The type of the parsed response.
+     * @param data     The body of the response that is about to be parsed.
+     * @return The cached response, or null if it has to be parsed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ParsedResponse<T> get(String cacheKey, Type type, byte[] data) {
+        Key key = new Key(cacheKey, type);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.ttl < System.currentTimeMillis()) {
+            entries.remove(key);
+            entry = null;
+        }
+
+        if (entry == null || !entry.matches(data)) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        return (ParsedResponse<T>) entry.response;
+    }
+
+    /**
+     * Caches the given parsed response, replacing the previous one.
+     *
+     * @param cacheKey The cache key of the request.
+     * @param type     The type of the parsed response.
+     * @param data     The body the response was parsed from.
+     * @param response The parsed response.
+     * @param ttl      The time when the response expires, as in {@code Cache.Entry}.
+     * @param softTtl  The time when the response needs to be refreshed, as in {@code Cache.Entry}.
+     */
+    public void put(String cacheKey, Type type, byte[] data, ParsedResponse<?> response, long ttl, long softTtl) {
+        put(cacheKey, type, data, null, response, ttl, softTtl);
+    }
+
+    /**
+     * Caches the given parsed response, replacing the previous one.
+     *
+     * @param etag The ETag of the body, or null if it has none. It is used to recognise the body
+     *             when it is revalidated, see {@link #revalidate}.
+     */
+    public void put(String cacheKey, Type type, byte[] data, String etag, ParsedResponse<?> response, long ttl, long softTtl) {
+        entries.put(new Key(cacheKey, type), new Entry(response, data, etag, ttl, softTtl));
+    }
+
+    /**
+     * Updates the expiry of the cached response after its body was revalidated without changes.
+     *
+     * @return True if there was a cached response parsed from the given body.
+     */
+    public boolean refresh(String cacheKey, Type type, byte[] data, long ttl, long softTtl) {
+        Entry entry = entries.get(new Key(cacheKey, type));
+        if (entry == null || !entry.matches(data))
+            return false;
+
+        entry.ttl = ttl;
+        entry.softTtl = softTtl;
+
+        return true;
+    }
+
+    /**
+     * Returns the cached response after the server answered with {@code 304 Not Modified},
+     * and updates its expiry. The response is returned even if it has expired, since the server
+     * has just confirmed that it is still valid. If the cached response has the same ETag
+     * as the revalidated body, the bodies are not compared.
+     *
+     * @param cacheKey The cache key of the request.
+     * @param type     The type of the parsed response.
+     * @param etag     The ETag of the revalidated body, or null if it has none.
+     * @param data     The revalidated body, from Volley's cache.
+     * @param ttl      The new time when the response expires.
+     * @param softTtl  The new time when the response needs to be refreshed.
+     * @return The cached response, or null if it has to be parsed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ParsedResponse<T> revalidate(String cacheKey, Type type, String etag, byte[] data, long ttl, long softTtl) {
+        Entry entry = entries.get(new Key(cacheKey, type));
+        if (entry == null || !(etag != null && entry.etag != null ? etag.equals(entry.etag) : entry.matches(data))) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        entry.ttl = ttl;
+        entry.softTtl = softTtl;
+
+        hitCount.incrementAndGet();
+        return (ParsedResponse<T>) entry.response;
+    }
+
+    /**
+     * Removes the cached response of the given request and type.
+     */
+    public void remove(String cacheKey, Type type) {
+        entries.remove(new Key(cacheKey, type));
+    }
+
+    /**
+     * Removes all of the cached responses of the given request, whatever their type is.
+     */
+    public void invalidate(String cacheKey) {
+        for (Key key : entries.snapshot().keySet()) {
+            if (key.cacheKey.equals(cacheKey))
+                entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        entries.evictAll();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return The number of responses that have been evicted to keep the cache within its maximum weight.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return The total weight of the cached responses in bytes.
+     */
+    public int getWeight() {
+        return entries.size();
+    }
+
+    public int getMaxWeight() {
+        return entries.maxSize();
+    }
+
+    private class Entries extends LruCache<Key, Entry> {
+        Entries(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected int sizeOf(Key key, Entry value) {
+            return Math.max(1, value.data.length);
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, Key key, Entry oldValue, Entry newValue) {
+            if (evicted)
+                evictionCount.incrementAndGet();
+        }
+    }
+
+    private static final class Key {
+        final String cacheKey;
+        final Type type;
+
+        Key(String cacheKey, Type type) {
+            this.cacheKey = cacheKey;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+
+            Key key = (Key) o;
+            return cacheKey.equals(key.cacheKey) && type.equals(key.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * cacheKey.hashCode() + type.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final ParsedResponse<?> response;
+        final byte[] data;
+        final String etag;
+        volatile long ttl;
+        volatile long softTtl;
+
+        Entry(ParsedResponse<?> response, byte[] data, String etag, long ttl, long softTtl) {
+            this.response = response;
+            this.data = data;
+            this.etag = etag;
+            this.ttl = ttl;
+            this.softTtl = softTtl;
+        }
+
+        /**
+         * Checks whether the entry was parsed from the given body. The bodies are compared
+         * byte by byte (unless it is the same array), since a hash could match another body.
+         */
+        boolean matches(byte[] data) {
+            return data != null && Arrays.equals(this.data, data);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.rainy.networkhelper.delivery;
+
+import java.util.Locale;
+
+/**
+ * A snapshot of the batches of a {@link FrameBatchingExecutor}. The percentiles are
+ * taken from histograms, so they are approximate, and they are -1 if there was no batch yet.
+ */
+public final class BatchStats {
+    private final long batches;
+    private final long delivered;
+    private final long spilled;
+    private final long medianSize;
+    private final long p99Size;
+    private final long medianDurationUs;
+    private final long p99DurationUs;
+    private final long maxDurationUs;
+
+    BatchStats(long batches, long delivered, long spilled, long medianSize, long p99Size,
+               long medianDurationUs, long p99DurationUs, long maxDurationUs) {
+        this.batches = batches;
+        this.delivered = delivered;
+        this.spilled = spilled;
+        this.medianSize = medianSize;
+        this.p99Size = p99Size;
+        this.medianDurationUs = medianDurationUs;
+        this.p99DurationUs = p99DurationUs;
+        this.maxDurationUs = maxDurationUs;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return The number of responses delivered in the batches.
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * @return The number of batches that hit their budget or their maximum size, and left
+     * responses for the next batch.
+     */
+    public long getSpilled() {
+        return spilled;
+    }
+
+    public double getAverageSize() {
+        return batches > 0 ? (double) delivered / batches : 0;
+    }
+
+    public long getMedianSize() {
+        return medianSize;
+    }
+
+    public long getP99Size() {
+        return p99Size;
+    }
+
+    public long getMedianDurationUs() {
+        return medianDurationUs;
+    }
+
+    public long getP99DurationUs() {
+        return p99DurationUs;
+    }
+
+    public long getMaxDurationUs() {
+        return maxDurationUs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d batches, %d delivered (%.1f per batch, p99 %d), %d spilled, duration p50 %d us, p99 %d us, max %d us",
+                batches, delivered, getAverageSize(), p99Size, spilled, medianDurationUs, p99DurationUs, maxDurationUs);
+    }
+}
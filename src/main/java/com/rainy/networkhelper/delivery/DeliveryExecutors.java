@@ -0,0 +1,104 @@
+package com.rainy.networkhelper.delivery;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The executors that the responses can be delivered with. A request or a queue can be set
+ * to deliver its responses on the main thread (the default), on the main thread in batches
+ * per frame, on an executor of the app, or directly on the thread that parsed the response,
+ * see {@link SwitchingResponseDelivery}.
+ */
+public final class DeliveryExecutors {
+    /**
+     * The executor whose delivery is running on the current thread, if there is one.
+     */
+    private static final ThreadLocal<Executor> delivering = new ThreadLocal<>();
+
+    private DeliveryExecutors() {
+    }
+
+    /**
+     * @return The executor that posts the responses to the main thread, like Volley does by default.
+     */
+    public static Executor mainThread() {
+        return MainThreadExecutor.INSTANCE;
+    }
+
+    /**
+     * @return The executor that delivers the responses right away, on the network (or cache)
+     * dispatcher thread that parsed them. The listeners must not block, and must not touch the UI.
+     */
+    public static Executor direct() {
+        return DirectExecutor.INSTANCE;
+    }
+
+    /**
+     * @return The shared {@link FrameBatchingExecutor} with the default settings, which delivers
+     * the responses on the main thread in one batch per frame.
+     */
+    public static FrameBatchingExecutor frameBatched() {
+        return FrameBatched.executor;
+    }
+
+    /**
+     * Hands the given delivery to the executor, and remembers on the thread that runs it
+     * which executor it is run by, see {@link #isDeliveringWith}.
+     */
+    public static void post(final Executor executor, final Runnable delivery) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Executor previous = delivering.get();
+                delivering.set(executor);
+                try {
+                    delivery.run();
+                } finally {
+                    delivering.set(previous);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return True if the current thread is running a delivery posted with {@link #post} to the
+     * given executor, so whatever should be called with that executor can be called right away.
+     */
+    public static boolean isDeliveringWith(Executor executor) {
+        return executor != null && delivering.get() == executor;
+    }
+
+    private enum MainThreadExecutor implements Executor {
+        INSTANCE;
+
+        @Override
+        public void execute(Runnable runnable) {
+            MainThread.handler.post(runnable);
+        }
+    }
+
+    private enum DirectExecutor implements Executor {
+        INSTANCE;
+
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    }
+
+    /**
+     * Holder of the shared frame batching executor, which is only created when it is first needed.
+     */
+    private static class FrameBatched {
+        static final FrameBatchingExecutor executor = new FrameBatchingExecutor();
+    }
+
+    /**
+     * Holder of the main thread handler, which is only created when it is first needed.
+     */
+    private static class MainThread {
+        static final Handler handler = new Handler(Looper.getMainLooper());
+    }
+}
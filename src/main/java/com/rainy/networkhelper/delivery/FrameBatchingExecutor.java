@@ -0,0 +1,233 @@
+package com.rainy.networkhelper.delivery;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import com.rainy.networkhelper.metrics.LatencyHistogram;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivery executor that collects the responses and delivers them on the main thread in
+ * batches, one batch per frame (with {@link Choreographer}), or one batch per time slice.
+ * A burst of responses, like while a feed is loading, is then a few main thread messages
+ * instead of one for every response, so it doesn't make the UI drop frames.
+ * <p>
+ * A batch stops when its time budget is used up or when it reaches its maximum size, and
+ * the rest of the responses are delivered in the next batch. At least one response is
+ * delivered in every batch, however long it takes.
+ * <p>
+ * Set it on a request, a queue or a future as its delivery executor. The executor should be
+ * shared, otherwise there is a batch per executor.
+ */
+public class FrameBatchingExecutor implements Executor {
+    /**
+     * The default time budget of a batch. It leaves most of a 16 ms frame for drawing.
+     */
+    public static final long DEFAULT_BUDGET_MS = 4;
+
+    private final long sliceMs;
+    private final long budgetNs;
+    private final int maxBatchSize;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private boolean scheduled = false;
+    private long lastBatchAt = 0;
+    private FrameScheduler frameScheduler;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong maxDurationNs = new AtomicLong();
+    private final LatencyHistogram batchSizes = new LatencyHistogram();
+    private final LatencyHistogram batchDurationsUs = new LatencyHistogram();
+
+    private final Runnable batch = new Runnable() {
+        @Override
+        public void run() {
+            runBatch();
+        }
+    };
+
+    /**
+     * Creates an executor that delivers a batch per frame, with the default budget and no size limit.
+     */
+    public FrameBatchingExecutor() {
+        this(0, DEFAULT_BUDGET_MS, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param sliceMs      The time between two batches in milliseconds, or 0 to deliver a batch per frame.
+     *                     Before API 16 there is no {@link Choreographer}, so a 16 ms slice is used instead.
+     * @param budgetMs     The time after which a batch stops, and the rest is delivered in the next one.
+     * @param maxBatchSize The maximum number of responses in a batch.
+     */
+    public FrameBatchingExecutor(long sliceMs, long budgetMs, int maxBatchSize) {
+        if (sliceMs < 0 || budgetMs <= 0 || maxBatchSize < 1)
+            throw new IllegalArgumentException("the slice can't be negative, and the budget and the batch size must be positive");
+
+        this.sliceMs = sliceMs == 0 && Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN ? 16 : sliceMs;
+        this.budgetNs = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        synchronized (pending) {
+            pending.add(runnable);
+            if (scheduled)
+                return;
+
+            scheduled = true;
+        }
+
+        schedule();
+    }
+
+    private void schedule() {
+        if (sliceMs > 0) {
+            long next;
+            synchronized (pending) {
+                next = lastBatchAt + sliceMs;
+            }
+            handler.postAtTime(batch, Math.max(SystemClock.uptimeMillis(), next));
+        } else {
+            getFrameScheduler().schedule();
+        }
+    }
+
+    private synchronized FrameScheduler getFrameScheduler() {
+        if (frameScheduler == null)
+            frameScheduler = new FrameScheduler(handler, batch);
+
+        return frameScheduler;
+    }
+
+    /**
+     * Runs the pending responses until the budget or the maximum batch size is reached,
+     * and schedules the next batch if there are responses left.
+     */
+    private void runBatch() {
+        long start = System.nanoTime();
+        int count = 0;
+        boolean more;
+
+        try {
+            while (true) {
+                Runnable runnable;
+                synchronized (pending) {
+                    if (pending.isEmpty() || count >= maxBatchSize || (count > 0 && System.nanoTime() - start >= budgetNs))
+                        break;
+
+                    runnable = pending.poll();
+                }
+
+                count++;
+                runnable.run();
+            }
+        } finally {
+            long duration = System.nanoTime() - start;
+            // the responses left (even if one has thrown) are delivered in the next batch
+            synchronized (pending) {
+                lastBatchAt = SystemClock.uptimeMillis();
+                more = !pending.isEmpty();
+                scheduled = more;
+            }
+
+            record(count, duration, more);
+            if (more)
+                schedule();
+        }
+    }
+
+    private void record(int count, long durationNs, boolean spill) {
+        batches.incrementAndGet();
+        delivered.addAndGet(count);
+        if (spill)
+            spilled.incrementAndGet();
+
+        batchSizes.record(count);
+        batchDurationsUs.record(TimeUnit.NANOSECONDS.toMicros(durationNs));
+
+        long max;
+        do {
+            max = maxDurationNs.get();
+        } while (durationNs > max && !maxDurationNs.compareAndSet(max, durationNs));
+    }
+
+    /**
+     * @return The number of responses waiting for the next batch.
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return A snapshot of the sizes and durations of the batches so far.
+     */
+    public BatchStats getStats() {
+        return new BatchStats(batches.get(), delivered.get(), spilled.get(),
+                batchSizes.getPercentile(50), batchSizes.getPercentile(99),
+                batchDurationsUs.getPercentile(50), batchDurationsUs.getPercentile(99),
+                TimeUnit.NANOSECONDS.toMicros(maxDurationNs.get()));
+    }
+
+    public void resetStats() {
+        batches.set(0);
+        delivered.set(0);
+        spilled.set(0);
+        maxDurationNs.set(0);
+        batchSizes.reset();
+        batchDurationsUs.reset();
+    }
+
+    /**
+     * Posts the batches as frame callbacks. The {@link Choreographer} of the main thread can only
+     * be looked up on the main thread, so until it is known, the first frame callback is posted
+     * from a main thread message. It is a separate class, so it is only loaded on API 16 and above.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class FrameScheduler implements Choreographer.FrameCallback, Runnable {
+        private final Handler handler;
+        private final Runnable batch;
+        private volatile Choreographer choreographer;
+
+        FrameScheduler(Handler handler, Runnable batch) {
+            this.handler = handler;
+            this.batch = batch;
+        }
+
+        void schedule() {
+            Choreographer choreographer = this.choreographer;
+            if (choreographer != null)
+                choreographer.postFrameCallback(this);
+            else if (Looper.myLooper() == Looper.getMainLooper())
+                run();
+            else
+                handler.post(this);
+        }
+
+        @Override
+        public void run() {
+            if (choreographer == null)
+                choreographer = Choreographer.getInstance();
+
+            choreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            batch.run();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.rainy.networkhelper.delivery;
+
+import com.android.volley.ExecutorDelivery;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.ResponseDelivery;
+import com.android.volley.VolleyError;
+import com.rainy.networkhelper.request.BaseRequest;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The response delivery of a queue, which delivers the responses of every {@link BaseRequest}
+ * with the executor set on the request (see {@link BaseRequest#setDeliveryExecutor}), and the
+ * responses of the rest of the requests with the default executor of the queue.
+ * <p>
+ * Background consumers can use {@link DeliveryExecutors#direct()} or an executor of their own,
+ * so their responses don't have to go through the main thread.
+ */
+public class SwitchingResponseDelivery implements ResponseDelivery {
+    private final Executor defaultExecutor;
+    private final ResponseDelivery defaultDelivery;
+
+    public SwitchingResponseDelivery() {
+        this(DeliveryExecutors.mainThread());
+    }
+
+    public SwitchingResponseDelivery(Executor defaultExecutor) {
+        this.defaultExecutor = defaultExecutor;
+        this.defaultDelivery = new ExecutorDelivery(new TrackingExecutor(defaultExecutor));
+    }
+
+    public Executor getDefaultExecutor() {
+        return defaultExecutor;
+    }
+
+    @Override
+    public void postResponse(Request<?> request, Response<?> response) {
+        getDelivery(request).postResponse(request, response);
+    }
+
+    @Override
+    public void postResponse(Request<?> request, Response<?> response, Runnable runnable) {
+        getDelivery(request).postResponse(request, response, runnable);
+    }
+
+    @Override
+    public void postError(Request<?> request, VolleyError error) {
+        getDelivery(request).postError(request, error);
+    }
+
+    /**
+     * @return The delivery of the request's executor. It is only a thin wrapper, so it isn't
+     * cached, otherwise the executors of the requests would be kept alive.
+     */
+    private ResponseDelivery getDelivery(Request<?> request) {
+        Executor executor = request instanceof BaseRequest ? ((BaseRequest<?>) request).getDeliveryExecutor() : null;
+        if (executor == null || executor == defaultExecutor)
+            return defaultDelivery;
+
+        return new ExecutorDelivery(new TrackingExecutor(executor));
+    }
+
+    /**
+     * Posts the deliveries with {@link DeliveryExecutors#post}, so the futures of the requests
+     * know when they are completed on their delivery thread.
+     */
+    private static final class TrackingExecutor implements Executor {
+        private final Executor executor;
+
+        TrackingExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable runnable) {
+            DeliveryExecutors.post(executor, runnable);
+        }
+    }
+}
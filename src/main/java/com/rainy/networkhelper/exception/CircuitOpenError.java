@@ -0,0 +1,22 @@
+package com.rainy.networkhelper.exception;
+
+import com.android.volley.VolleyError;
+
+/**
+ * Error delivered without sending the request, because the circuit breaker
+ * of its host is open after too many failed requests.
+ */
+public class CircuitOpenError extends VolleyError {
+    private static final long serialVersionUID = 1L;
+
+    private final String host;
+
+    public CircuitOpenError(String host) {
+        super("circuit breaker is open for " + host);
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
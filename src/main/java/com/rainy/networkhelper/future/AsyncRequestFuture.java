@@ -24,6 +24,7 @@ import com.android.volley.VolleyError;
 import com.rainy.networkhelper.request.BaseRequest;
 
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -58,6 +59,7 @@ public class AsyncRequestFuture<T> extends ExecutionFuture<T> implements Respons
     private Exception mException;
     private T mResult;
     private boolean mResultReceived = false;
+    private boolean mRequestSent = false;
 
     protected AsyncRequestFuture(Context context, BaseRequest<T> request) {
         this.context = context;
@@ -78,7 +80,10 @@ public class AsyncRequestFuture<T> extends ExecutionFuture<T> implements Respons
             return mResult;
         }
 
-        mRequest.send(context);
+        if (!mRequestSent) {
+            mRequestSent = true;
+            mRequest.send(context);
+        }
 
         if (timeoutMs == null) {
             wait(0);
@@ -97,6 +102,46 @@ public class AsyncRequestFuture<T> extends ExecutionFuture<T> implements Respons
         return mResult;
     }
 
+    /**
+     * Sends the request without waiting for the response. The listeners
+     * of {@link #enqueue} are called straight from the request's callbacks,
+     * so no thread is held while the request is in flight.
+     */
+    @Override
+    protected synchronized void start() {
+        if (mResultReceived || mRequestSent) {
+            return;
+        }
+
+        mRequestSent = true;
+        mRequest.send(context);
+    }
+
+    @Override
+    public Request.Priority getPriority() {
+        return mRequest != null ? mRequest.getPriority() : super.getPriority();
+    }
+
+    /**
+     * Sets the priority of the request too.
+     */
+    @Override
+    public ExecutionFuture<T> setPriority(Request.Priority priority) {
+        if (mRequest != null)
+            mRequest.setPriority(priority);
+
+        return super.setPriority(priority);
+    }
+
+    /**
+     * The listeners are called with the delivery executor of the request by default,
+     * so {@link #enqueue} doesn't add a second thread hop.
+     */
+    @Override
+    protected Executor getDefaultDeliveryExecutor() {
+        return mRequest != null ? mRequest.getResponseExecutor() : super.getDefaultDeliveryExecutor();
+    }
+
     public void setRequest(BaseRequest<T> mRequest) {
         this.mRequest = mRequest;
     }
@@ -114,17 +159,26 @@ public class AsyncRequestFuture<T> extends ExecutionFuture<T> implements Respons
     }
 
     @Override
-    public synchronized void onResponse(T response) {
-        mResult = response;
-        mResultReceived = true;
-        notifyAll();
+    public void onResponse(T response) {
+        synchronized (this) {
+            mResult = response;
+            mResultReceived = true;
+            notifyAll();
+        }
+
+        // the listeners may be called right away, so not while holding the lock
+        complete(response);
     }
 
     @Override
-    public synchronized void onErrorResponse(VolleyError error) {
-        mException = error;
-        mResultReceived = true;
-        notifyAll();
+    public void onErrorResponse(VolleyError error) {
+        synchronized (this) {
+            mException = error;
+            mResultReceived = true;
+            notifyAll();
+        }
+
+        fail(new ExecutionException(error));
     }
 
     public Context getContext() {
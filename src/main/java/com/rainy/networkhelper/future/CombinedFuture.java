@@ -0,0 +1,417 @@
+package com.rainy.networkhelper.future;
+
+import com.android.volley.Request;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base of the futures returned by the combinators of {@link ExecutionFuture}.
+ * <p>
+ * They don't hold a thread while waiting: they subscribe to their source futures
+ * when they are started, and complete on the thread that completes the last source
+ * they need. Cancelling them detaches them from their sources, and cancels the sources
+ * (and with that the requests) that nothing else is waiting for, so a source can be
+ * shared by several combinators.
+ */
+abstract class CombinedFuture<T> extends ExecutionFuture<T> {
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "NetworkHelper-Deadline");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final List<ExecutionFuture<?>> sources = new CopyOnWriteArrayList<>();
+    private final Map<ExecutionFuture<?>, Callback<?>> subscriptions = new ConcurrentHashMap<>();
+
+    CombinedFuture(List<? extends ExecutionFuture<?>> sources) {
+        this.sources.addAll(sources);
+    }
+
+    /**
+     * Subscribes to the sources and starts them.
+     */
+    protected abstract void subscribe();
+
+    @Override
+    protected void start() {
+        subscribe();
+    }
+
+    @Override
+    protected T execute(Long timeoutMs) throws Exception {
+        return await(timeoutMs);
+    }
+
+    void addSource(ExecutionFuture<?> source) {
+        sources.add(source);
+    }
+
+    /**
+     * Subscribes the given callback to a source future whose result type is a subtype of {@code S}, and starts it.
+     */
+    @SuppressWarnings("unchecked")
+    <S> void subscribe(ExecutionFuture<? extends S> source, Callback<S> callback) {
+        subscriptions.put(source, callback);
+        ((ExecutionFuture<S>) source).addCallback(callback);
+        source.startIfNeeded();
+    }
+
+    /**
+     * Detaches this future from the given source, and cancels the source if nothing else is waiting for it.
+     */
+    void release(ExecutionFuture<?> source) {
+        source.release(subscriptions.remove(source));
+    }
+
+    /**
+     * Releases all the sources, except the given one.
+     */
+    void cancelSources(ExecutionFuture<?> except) {
+        for (ExecutionFuture<?> source : sources) {
+            if (source != except && !source.isDone())
+                release(source);
+        }
+    }
+
+    static ScheduledFuture<?> schedule(Runnable task, long delayMs) {
+        return scheduler.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the priority of the sources too.
+     */
+    @Override
+    public ExecutionFuture<T> setPriority(Request.Priority priority) {
+        for (ExecutionFuture<?> source : sources)
+            source.setPriority(priority);
+
+        return super.setPriority(priority);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        cancelSources(null);
+        return cancelled;
+    }
+
+    static class MapFuture<S, T> extends CombinedFuture<T> {
+        private final ExecutionFuture<S> source;
+        private final Mapper<? super S, ? extends T> mapper;
+
+        MapFuture(ExecutionFuture<S> source, Mapper<? super S, ? extends T> mapper) {
+            super(Collections.singletonList(source));
+            this.source = source;
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected void subscribe() {
+            subscribe(source, new Callback<S>() {
+                @Override
+                public void onComplete(S result, Exception error) {
+                    if (error != null) {
+                        fail(error);
+                        return;
+                    }
+
+                    try {
+                        complete(mapper.map(result));
+                    } catch (Exception e) {
+                        fail(e);
+                    }
+                }
+            });
+        }
+    }
+
+    static class FlatMapFuture<S, T> extends CombinedFuture<T> {
+        private final ExecutionFuture<S> source;
+        private final FlatMapper<? super S, T> mapper;
+
+        FlatMapFuture(ExecutionFuture<S> source, FlatMapper<? super S, T> mapper) {
+            super(Collections.singletonList(source));
+            this.source = source;
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected void subscribe() {
+            subscribe(source, new Callback<S>() {
+                @Override
+                public void onComplete(S result, Exception error) {
+                    if (error != null) {
+                        fail(error);
+                        return;
+                    }
+
+                    ExecutionFuture<T> next;
+                    try {
+                        next = mapper.flatMap(result);
+                    } catch (Exception e) {
+                        fail(e);
+                        return;
+                    }
+
+                    if (next == null) {
+                        fail(new NullPointerException("flatMap returned null"));
+                        return;
+                    }
+
+                    addSource(next);
+                    if (isCancelled()) {
+                        release(next);
+                        return;
+                    }
+
+                    subscribe(next, new Callback<T>() {
+                        @Override
+                        public void onComplete(T result, Exception error) {
+                            if (error != null)
+                                fail(error);
+                            else
+                                complete(result);
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    static class AllOfFuture<T> extends CombinedFuture<List<T>> {
+        private final List<? extends ExecutionFuture<? extends T>> futures;
+
+        AllOfFuture(List<? extends ExecutionFuture<? extends T>> futures) {
+            super(futures);
+            this.futures = futures;
+        }
+
+        @Override
+        protected void subscribe() {
+            final int count = futures.size();
+            if (count == 0) {
+                complete(Collections.<T>emptyList());
+                return;
+            }
+
+            final Object[] results = new Object[count];
+            final AtomicInteger remaining = new AtomicInteger(count);
+            for (int i = 0; i < count; i++) {
+                final int index = i;
+                final ExecutionFuture<? extends T> future = futures.get(i);
+                subscribe(future, new Callback<T>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public void onComplete(T result, Exception error) {
+                        if (error != null) {
+                            if (!isDone()) {
+                                fail(error);
+                                cancelSources(future);
+                            }
+                            return;
+                        }
+
+                        results[index] = result;
+                        if (remaining.decrementAndGet() == 0)
+                            complete((List<T>) Arrays.asList(results));
+                    }
+                });
+            }
+        }
+    }
+
+    static class AnyOfFuture<T> extends CombinedFuture<T> {
+        private final List<? extends ExecutionFuture<? extends T>> futures;
+
+        AnyOfFuture(List<? extends ExecutionFuture<? extends T>> futures) {
+            super(futures);
+            this.futures = futures;
+        }
+
+        @Override
+        protected void subscribe() {
+            final int count = futures.size();
+            if (count == 0) {
+                fail(new NoSuchElementException("anyOf called without futures"));
+                return;
+            }
+
+            final AtomicInteger remaining = new AtomicInteger(count);
+            for (final ExecutionFuture<? extends T> future : futures) {
+                subscribe(future, new Callback<T>() {
+                    @Override
+                    public void onComplete(T result, Exception error) {
+                        if (error == null) {
+                            if (!isDone()) {
+                                complete(result);
+                                cancelSources(future);
+                            }
+                        } else if (remaining.decrementAndGet() == 0) {
+                            // all of them have failed, so the last error is reported
+                            fail(error);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    static class AllSettledFuture<T> extends CombinedFuture<List<Outcome<T>>> {
+        private final List<? extends ExecutionFuture<? extends T>> futures;
+        private final long deadlineMs;
+        private Outcome<T>[] outcomes;
+        private int remaining;
+        private ScheduledFuture<?> deadline;
+
+        AllSettledFuture(List<? extends ExecutionFuture<? extends T>> futures, long deadlineMs) {
+            super(futures);
+            this.futures = futures;
+            this.deadlineMs = deadlineMs;
+        }
+
+        @Override
+        protected void subscribe() {
+            synchronized (this) {
+                @SuppressWarnings("unchecked")
+                Outcome<T>[] outcomes = (Outcome<T>[]) new Outcome<?>[futures.size()];
+                this.outcomes = outcomes;
+                remaining = outcomes.length;
+            }
+
+            if (futures.isEmpty()) {
+                complete(Collections.<Outcome<T>>emptyList());
+                return;
+            }
+
+            if (deadlineMs >= 0) {
+                ScheduledFuture<?> task = schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        settleRemaining();
+                    }
+                }, deadlineMs);
+
+                synchronized (this) {
+                    deadline = task;
+                }
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                final int index = i;
+                subscribe(futures.get(i), new Callback<T>() {
+                    @Override
+                    public void onComplete(T result, Exception error) {
+                        settle(index, error == null ? Outcome.success(result) : Outcome.<T>failure(error));
+                    }
+                });
+            }
+        }
+
+        private void settle(int index, Outcome<T> outcome) {
+            List<Outcome<T>> settled;
+            ScheduledFuture<?> task;
+            synchronized (this) {
+                if (outcomes[index] != null)
+                    return;
+
+                outcomes[index] = outcome;
+                if (--remaining > 0)
+                    return;
+
+                settled = Arrays.asList(outcomes);
+                task = deadline;
+            }
+
+            if (task != null)
+                task.cancel(false);
+            complete(settled);
+        }
+
+        /**
+         * Called when the deadline elapses: the futures that haven't completed yet are timed out and cancelled.
+         */
+        private void settleRemaining() {
+            List<ExecutionFuture<?>> timedOut = new ArrayList<>();
+            List<Outcome<T>> settled;
+            synchronized (this) {
+                for (int i = 0; i < outcomes.length; i++) {
+                    if (outcomes[i] == null) {
+                        outcomes[i] = Outcome.failure(new TimeoutException());
+                        timedOut.add(futures.get(i));
+                    }
+                }
+
+                remaining = 0;
+                settled = Arrays.asList(outcomes);
+            }
+
+            complete(settled);
+            for (ExecutionFuture<?> future : timedOut)
+                release(future);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            ScheduledFuture<?> task;
+            synchronized (this) {
+                task = deadline;
+            }
+
+            if (task != null)
+                task.cancel(false);
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    static class DeadlineFuture<T> extends CombinedFuture<T> {
+        private final ExecutionFuture<T> source;
+        private final long deadlineMs;
+
+        DeadlineFuture(ExecutionFuture<T> source, long deadlineMs) {
+            super(Collections.singletonList(source));
+            this.source = source;
+            this.deadlineMs = deadlineMs;
+        }
+
+        @Override
+        protected void subscribe() {
+            final ScheduledFuture<?> task = schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isDone()) {
+                        fail(new TimeoutException());
+                        release(source);
+                    }
+                }
+            }, deadlineMs);
+
+            subscribe(source, new Callback<T>() {
+                @Override
+                public void onComplete(T result, Exception error) {
+                    task.cancel(false);
+                    if (error != null)
+                        fail(error);
+                    else
+                        complete(result);
+                }
+            });
+        }
+    }
+}
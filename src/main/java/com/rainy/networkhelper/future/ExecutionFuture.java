@@ -1,25 +1,49 @@
 package com.rainy.networkhelper.future;
 
-import android.os.Handler;
-import android.os.Looper;
+import android.util.Pair;
 
+import com.android.volley.Request;
+import com.rainy.networkhelper.delivery.DeliveryExecutors;
+import com.rainy.networkhelper.util.PriorityAging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Abstract future that offers a
  * built-in executor, and generic listeners
  * for success and failure.
  * <p>
+ * Subclasses that can run without blocking (like the request futures)
+ * override {@link #start()} and report the outcome with {@link #complete(Object)}
+ * or {@link #fail(Exception)}, so {@link #enqueue} doesn't hold a thread while
+ * they are running. Otherwise {@link #execute(Long)} is run on the executor.
+ * <p>
+ * The built-in executor runs the futures in the order of their priority,
+ * aging the lower priorities upward while they wait.
+ * <p>
+ * The listeners of {@link #enqueue} and the progress listener are called with the
+ * delivery executor, on the main thread by default (see {@link #setDeliveryExecutor}).
+ * <p>
+ * When a combined future is cancelled, or it cancels the futures it doesn't need any more,
+ * only the futures that nothing else is waiting for are cancelled. A future that is shared
+ * by several combinators, or that has been enqueued on its own, keeps running.
+ * <p>
  * Created by szantogabor on 28/08/16.
  */
 public abstract class ExecutionFuture<T> implements Future<T> {
-    private static final ExecutorService sExecutorService = Executors.newFixedThreadPool(4);
-    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static final ThreadPoolExecutor sExecutorService = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>());
 
     private ExecutorService executorService;
     private volatile OnProgressChangedListener onProgressChangedListener;
@@ -27,7 +51,14 @@ public abstract class ExecutionFuture<T> implements Future<T> {
     private volatile OnErrorListener onErrorListener;
     private volatile boolean cancelled = false;
     private volatile boolean done = false;
+    private final AtomicBoolean started = new AtomicBoolean(false);
     private final Object lock = new Object();
+    private T result;
+    private Exception error;
+    private List<Callback<T>> callbacks;
+    private volatile Request.Priority priority = Request.Priority.NORMAL;
+    private PrioritizedTask task;
+    private volatile Executor deliveryExecutor;
 
     public ExecutionFuture() {
         this.executorService = sExecutorService;
@@ -39,41 +70,348 @@ public abstract class ExecutionFuture<T> implements Future<T> {
 
     protected abstract T execute(Long timeoutMs) throws Exception;
 
-    public void enqueue(OnSuccessListener<T> onSuccessListener, OnErrorListener onErrorListener) {
-        this.onSuccessListener = onSuccessListener;
-        this.onErrorListener = onErrorListener;
-        this.cancelled = false;
-
-        executorService.execute(new Runnable() {
+    /**
+     * Starts the execution without waiting for it to finish. The outcome must be
+     * reported with {@link #complete(Object)} or {@link #fail(Exception)}.
+     * <p>
+     * By default {@link #execute(Long)} is run on the executor of this future.
+     */
+    protected void start() {
+        PrioritizedTask task = new PrioritizedTask(new Runnable() {
             @Override
             public void run() {
                 try {
-                    final T result = execute(null);
-
-                    synchronized (lock) {
-                        handler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                if (ExecutionFuture.this.onSuccessListener != null && !cancelled)
-                                    ExecutionFuture.this.onSuccessListener.onSuccess(result);
-                            }
-                        });
-                    }
-                } catch (final Exception e) {
-                    synchronized (lock) {
-                        handler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                if (ExecutionFuture.this.onErrorListener != null && !cancelled)
-                                    ExecutionFuture.this.onErrorListener.onError(e);
-                            }
-                        });
-                    }
+                    complete(execute(null));
+                } catch (Exception e) {
+                    fail(e);
+                }
+            }
+        }, getPriority(), PriorityAging.now());
+
+        synchronized (lock) {
+            this.task = task;
+        }
+        executorService.execute(task);
+    }
+
+    public Request.Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Sets the priority of this future in the built-in executor. If the future is
+     * already waiting for the executor, it is reordered right away.
+     */
+    public ExecutionFuture<T> setPriority(Request.Priority priority) {
+        this.priority = priority;
+
+        PrioritizedTask reordered = null;
+        synchronized (lock) {
+            if (task != null && executorService instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executorService).remove(task)) {
+                task = reordered = new PrioritizedTask(task.runnable, priority, task.enqueuedAt);
+            }
+        }
+
+        if (reordered != null)
+            executorService.execute(reordered);
+
+        return this;
+    }
+
+    /**
+     * @return The executor that the listeners are called with.
+     */
+    public Executor getDeliveryExecutor() {
+        Executor executor = deliveryExecutor;
+        return executor != null ? executor : getDefaultDeliveryExecutor();
+    }
+
+    /**
+     * Sets the executor that the listeners of {@link #enqueue} and the progress listener are
+     * called with. Background consumers can use {@link DeliveryExecutors#direct()} to be called
+     * on the thread that completes the future, without going through the main thread.
+     */
+    public ExecutionFuture<T> setDeliveryExecutor(Executor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+        return this;
+    }
+
+    /**
+     * @return The executor that the listeners are called with if none has been set, the main thread by default.
+     */
+    protected Executor getDefaultDeliveryExecutor() {
+        return DeliveryExecutors.mainThread();
+    }
+
+    /**
+     * @return True if this future is being completed from a delivery of its delivery executor
+     * (like the response delivery of a request), so the listeners can be called right away
+     * instead of being handed to the executor again. Errors that are raised on the thread that
+     * sends a request are handed to the executor, so the listeners are never called from
+     * {@link #enqueue} itself.
+     */
+    protected boolean completesOnDeliveryThread() {
+        return DeliveryExecutors.isDeliveringWith(getDeliveryExecutor());
+    }
+
+    /**
+     * Completes this future with the given result, and notifies the listeners.
+     * Does nothing if the future has already been completed.
+     */
+    protected final void complete(T result) {
+        List<Callback<T>> callbacks;
+        synchronized (lock) {
+            if (done)
+                return;
+
+            this.result = result;
+            this.done = true;
+            callbacks = this.callbacks;
+            this.callbacks = null;
+            lock.notifyAll();
+        }
+
+        notifyCallbacks(callbacks, result, null);
+        dispatch(completesOnDeliveryThread());
+    }
+
+    /**
+     * Completes this future with the given error, and notifies the listeners.
+     * Does nothing if the future has already been completed.
+     */
+    protected final void fail(Exception error) {
+        List<Callback<T>> callbacks;
+        synchronized (lock) {
+            if (done)
+                return;
+
+            this.error = error;
+            this.done = true;
+            callbacks = this.callbacks;
+            this.callbacks = null;
+            lock.notifyAll();
+        }
+
+        notifyCallbacks(callbacks, null, error);
+        dispatch(completesOnDeliveryThread());
+    }
+
+    private void notifyCallbacks(List<Callback<T>> callbacks, T result, Exception error) {
+        if (callbacks != null) {
+            for (Callback<T> callback : callbacks)
+                callback.onComplete(result, error);
+        }
+    }
+
+    /**
+     * Registers a callback that is called on the thread that completes this future,
+     * or right away if it has already been completed. Used by the combinators.
+     */
+    void addCallback(Callback<T> callback) {
+        T result;
+        Exception error;
+        synchronized (lock) {
+            if (!done) {
+                if (callbacks == null)
+                    callbacks = new ArrayList<>(2);
+                callbacks.add(callback);
+                return;
+            }
+
+            result = this.result;
+            error = this.error;
+        }
+
+        callback.onComplete(result, error);
+    }
+
+    /**
+     * Removes a callback registered with {@link #addCallback}, and cancels this future
+     * if it hasn't completed yet and nothing else is waiting for it: no other callback,
+     * and no listener of {@link #enqueue}. Used by the combinators when they are cancelled.
+     *
+     * @param callback The callback to remove, or null if none has been registered.
+     */
+    void release(Callback<?> callback) {
+        synchronized (lock) {
+            if (callbacks != null)
+                callbacks.remove(callback);
+
+            if (done || (callbacks != null && !callbacks.isEmpty()) || onSuccessListener != null || onErrorListener != null)
+                return;
+        }
+
+        cancel(true);
+    }
+
+    /**
+     * Starts this future, unless it has already been started.
+     */
+    void startIfNeeded() {
+        if (started.compareAndSet(false, true))
+            start();
+    }
+
+    /**
+     * Starts this future if needed, and waits until it is completed.
+     *
+     * @param timeoutMs The maximum time to wait, or null to wait forever.
+     * @return The result of the future.
+     * @throws Exception The error of the future, or a {@link TimeoutException}.
+     */
+    T await(Long timeoutMs) throws Exception {
+        startIfNeeded();
+
+        synchronized (lock) {
+            long deadline = timeoutMs != null ? System.currentTimeMillis() + timeoutMs : 0;
+            while (!done) {
+                if (timeoutMs == null) {
+                    lock.wait();
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0)
+                        throw new TimeoutException();
+                    lock.wait(remaining);
                 }
             }
+
+            if (error != null)
+                throw error;
+
+            return result;
+        }
+    }
+
+    /**
+     * Returns a future that completes with the result of this future transformed by the given mapper.
+     * The mapper is called on the thread that completes this future.
+     */
+    public <R> ExecutionFuture<R> map(Mapper<? super T, ? extends R> mapper) {
+        return new CombinedFuture.MapFuture<>(this, mapper);
+    }
+
+    /**
+     * Returns a future that starts the future returned by the given mapper once this future
+     * has succeeded, and completes with its result. Use it for requests that depend on the
+     * result of another one. The mapper is called on the thread that completes this future.
+     */
+    public <R> ExecutionFuture<R> flatMap(FlatMapper<? super T, R> mapper) {
+        return new CombinedFuture.FlatMapFuture<>(this, mapper);
+    }
+
+    /**
+     * Returns a future that runs this and the other future in parallel, and completes with
+     * both of their results. It fails as soon as one of them fails, and cancels the other one.
+     */
+    @SuppressWarnings("unchecked")
+    public <U> ExecutionFuture<Pair<T, U>> zip(ExecutionFuture<U> other) {
+        return allOf(Arrays.<ExecutionFuture<?>>asList(this, other)).map(new Mapper<List<Object>, Pair<T, U>>() {
+            @Override
+            public Pair<T, U> map(List<Object> results) throws Exception {
+                return Pair.create((T) results.get(0), (U) results.get(1));
+            }
         });
     }
 
+    /**
+     * Returns a future that fails with a {@link TimeoutException} and cancels this future
+     * if it doesn't complete within the given time.
+     */
+    public ExecutionFuture<T> withDeadline(long timeout, TimeUnit timeUnit) {
+        return new CombinedFuture.DeadlineFuture<>(this, TimeUnit.MILLISECONDS.convert(timeout, timeUnit));
+    }
+
+    /**
+     * Returns a future that runs the given futures in parallel, and completes with the list of
+     * their results, in the same order. It fails as soon as one of them fails, and cancels the rest.
+     */
+    public static <T> ExecutionFuture<List<T>> allOf(List<? extends ExecutionFuture<? extends T>> futures) {
+        return new CombinedFuture.AllOfFuture<>(futures);
+    }
+
+    /**
+     * Returns a future that runs the given futures in parallel, and completes with the result of
+     * the first one that succeeds, cancelling the rest. It only fails if all of them fail.
+     */
+    public static <T> ExecutionFuture<T> anyOf(List<? extends ExecutionFuture<? extends T>> futures) {
+        return new CombinedFuture.AnyOfFuture<>(futures);
+    }
+
+    /**
+     * Returns a future that runs the given futures in parallel, and completes with the outcome
+     * of each of them, in the same order, once all of them have completed. It never fails.
+     */
+    public static <T> ExecutionFuture<List<Outcome<T>>> allSettled(List<? extends ExecutionFuture<? extends T>> futures) {
+        return new CombinedFuture.AllSettledFuture<>(futures, -1);
+    }
+
+    /**
+     * Same as {@link #allSettled(List)}, but when the given time elapses it completes with the
+     * outcomes available so far. The futures that haven't completed by then are cancelled, and
+     * their outcome will be a {@link TimeoutException}.
+     */
+    public static <T> ExecutionFuture<List<Outcome<T>>> allSettled(List<? extends ExecutionFuture<? extends T>> futures, long timeout, TimeUnit timeUnit) {
+        return new CombinedFuture.AllSettledFuture<>(futures, TimeUnit.MILLISECONDS.convert(timeout, timeUnit));
+    }
+
+    /**
+     * Starts this future if it hasn't been started yet, and calls one of the listeners with its
+     * outcome. If it has already completed, the listeners are called with that outcome. A cancelled
+     * future is not run again: the error listener is called with a {@link CancellationException}.
+     */
+    public void enqueue(OnSuccessListener<T> onSuccessListener, OnErrorListener onErrorListener) {
+        boolean completed;
+        synchronized (lock) {
+            this.onSuccessListener = onSuccessListener;
+            this.onErrorListener = onErrorListener;
+            completed = done;
+        }
+
+        // not while holding the lock, the delivery executor may call the listeners right away
+        if (completed)
+            dispatch(false);
+        else if (started.compareAndSet(false, true))
+            start();
+    }
+
+    /**
+     * Calls the listeners with the outcome of this future.
+     *
+     * @param direct True to call them on the current thread, rather than with the delivery executor.
+     */
+    private void dispatch(boolean direct) {
+        final T result;
+        final Exception error;
+        synchronized (lock) {
+            if (onSuccessListener == null && onErrorListener == null)
+                return;
+
+            result = this.result;
+            error = this.error;
+        }
+
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                // the listeners are read here, so the ones removed by cancel() in the meantime aren't called
+                if (error == null) {
+                    OnSuccessListener<T> listener = ExecutionFuture.this.onSuccessListener;
+                    if (listener != null)
+                        listener.onSuccess(result);
+                } else {
+                    OnErrorListener listener = ExecutionFuture.this.onErrorListener;
+                    if (listener != null)
+                        listener.onError(error);
+                }
+            }
+        };
+
+        if (direct)
+            runnable.run();
+        else
+            getDeliveryExecutor().execute(runnable);
+    }
+
     public ExecutionFuture<T> withProgressChangedListener(OnProgressChangedListener onProgressChangedListener) {
         this.onProgressChangedListener = onProgressChangedListener;
         return this;
@@ -81,11 +419,12 @@ public abstract class ExecutionFuture<T> implements Future<T> {
 
     protected void updateProgress(final float progress, final String message) {
         if (this.onProgressChangedListener != null) {
-            final Handler handler = new Handler(Looper.getMainLooper());
-            handler.post(new Runnable() {
+            getDeliveryExecutor().execute(new Runnable() {
                 @Override
                 public void run() {
-                    onProgressChangedListener.onProgressChanged(progress, message);
+                    OnProgressChangedListener listener = onProgressChangedListener;
+                    if (listener != null)
+                        listener.onProgressChanged(progress, message);
                 }
             });
         }
@@ -96,16 +435,24 @@ public abstract class ExecutionFuture<T> implements Future<T> {
         return cancelled;
     }
 
+    /**
+     * Cancels this future, and removes its listeners. It is terminal: the future completes
+     * with a {@link CancellationException}, and it won't run again if it is enqueued again.
+     */
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean wasDone;
         synchronized (lock) {
             onSuccessListener = null;
             onErrorListener = null;
             onProgressChangedListener = null;
             cancelled = true;
-
-            return !done;
+            wasDone = done;
         }
+
+        // lets the combinators waiting for this future know that it won't complete
+        fail(new CancellationException());
+        return !wasDone;
     }
 
     @Override
@@ -115,24 +462,69 @@ public abstract class ExecutionFuture<T> implements Future<T> {
 
     @Override
     public final T get() throws InterruptedException, ExecutionException {
-        try {
-            T result = execute(null);
-            done = true;
-            return result;
-        } catch (Exception e) {
-            throw new ExecutionException(e);
-        }
+        return executeAndComplete(null);
     }
 
     @Override
     public final T get(long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
+        return executeAndComplete(TimeUnit.MILLISECONDS.convert(timeout, timeUnit));
+    }
+
+    /**
+     * Runs {@link #execute(Long)} on the current thread, and completes this future with its outcome,
+     * like the executor does. If it times out or the thread is interrupted, the future isn't completed,
+     * since it may still complete later.
+     */
+    private T executeAndComplete(Long timeoutMs) throws ExecutionException {
         try {
-            return execute(TimeUnit.MILLISECONDS.convert(timeout, timeUnit));
+            T result = execute(timeoutMs);
+            complete(result);
+            return result;
+        } catch (TimeoutException | InterruptedException e) {
+            throw new ExecutionException(e);
         } catch (Exception e) {
+            fail(e);
             throw new ExecutionException(e);
         }
     }
 
+    /**
+     * Task of the executor, ordered by its priority and age.
+     */
+    private static final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        final Runnable runnable;
+        final long enqueuedAt;
+        final long sortKey;
+
+        PrioritizedTask(Runnable runnable, Request.Priority priority, long enqueuedAt) {
+            this.runnable = runnable;
+            this.enqueuedAt = enqueuedAt;
+            this.sortKey = PriorityAging.sortKey(priority, enqueuedAt);
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            return sortKey < other.sortKey ? -1 : (sortKey == other.sortKey ? 0 : 1);
+        }
+    }
+
+    interface Callback<T> {
+        void onComplete(T result, Exception error);
+    }
+
+    public interface Mapper<T, R> {
+        R map(T result) throws Exception;
+    }
+
+    public interface FlatMapper<T, R> {
+        ExecutionFuture<R> flatMap(T result) throws Exception;
+    }
+
     public interface OnProgressChangedListener {
         void onProgressChanged(float progress, String message);
     }
@@ -144,4 +536,4 @@ public abstract class ExecutionFuture<T> implements Future<T> {
     public interface OnErrorListener {
         void onError(Exception e);
     }
-}
\ No newline at end of file
+}
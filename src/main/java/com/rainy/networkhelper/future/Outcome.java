@@ -0,0 +1,48 @@
+package com.rainy.networkhelper.future;
+
+/**
+ * The outcome of a future, as returned by {@link ExecutionFuture#allSettled}:
+ * either its result or the error it failed with.
+ *
+ * @param <T> The type of the result.
+ */
+public final class Outcome<T> {
+    private final T result;
+    private final Exception error;
+
+    private Outcome(T result, Exception error) {
+        this.result = result;
+        this.error = error;
+    }
+
+    public static <T> Outcome<T> success(T result) {
+        return new Outcome<>(result, null);
+    }
+
+    public static <T> Outcome<T> failure(Exception error) {
+        return new Outcome<>(null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return The result of the future, or null if it has failed.
+     */
+    public T getResult() {
+        return result;
+    }
+
+    /**
+     * @return The error the future has failed with, or null if it has succeeded.
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? "Outcome{result=" + result + "}" : "Outcome{error=" + error + "}";
+    }
+}
@@ -25,6 +25,7 @@ import com.rainy.networkhelper.request.BaseRequest;
 import com.rainy.networkhelper.response.ParsedResponse;
 
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -59,6 +60,7 @@ public class ParsedAsyncRequestFuture<T> extends ExecutionFuture<T> implements R
     private Exception mException;
     private T mResult;
     private boolean mResultReceived = false;
+    private boolean mRequestSent = false;
 
     protected ParsedAsyncRequestFuture(Context context, BaseRequest<ParsedResponse<T>> request) {
         this.context = context;
@@ -80,7 +82,10 @@ public class ParsedAsyncRequestFuture<T> extends ExecutionFuture<T> implements R
             return mResult;
         }
 
-        mRequest.send(context);
+        if (!mRequestSent) {
+            mRequestSent = true;
+            mRequest.send(context);
+        }
 
         if (timeoutMs == null) {
             wait(0);
@@ -99,6 +104,46 @@ public class ParsedAsyncRequestFuture<T> extends ExecutionFuture<T> implements R
         return mResult;
     }
 
+    /**
+     * Sends the request without waiting for the response. The listeners
+     * of {@link #enqueue} are called straight from the request's callbacks,
+     * so no thread is held while the request is in flight.
+     */
+    @Override
+    protected synchronized void start() {
+        if (mResultReceived || mRequestSent) {
+            return;
+        }
+
+        mRequestSent = true;
+        mRequest.send(context);
+    }
+
+    @Override
+    public Request.Priority getPriority() {
+        return mRequest != null ? mRequest.getPriority() : super.getPriority();
+    }
+
+    /**
+     * Sets the priority of the request too.
+     */
+    @Override
+    public ExecutionFuture<T> setPriority(Request.Priority priority) {
+        if (mRequest != null)
+            mRequest.setPriority(priority);
+
+        return super.setPriority(priority);
+    }
+
+    /**
+     * The listeners are called with the delivery executor of the request by default,
+     * so {@link #enqueue} doesn't add a second thread hop.
+     */
+    @Override
+    protected Executor getDefaultDeliveryExecutor() {
+        return mRequest != null ? mRequest.getResponseExecutor() : super.getDefaultDeliveryExecutor();
+    }
+
     public void setRequest(BaseRequest<ParsedResponse<T>> mRequest) {
         this.mRequest = mRequest;
     }
@@ -116,18 +161,29 @@ public class ParsedAsyncRequestFuture<T> extends ExecutionFuture<T> implements R
     }
 
     @Override
-    public synchronized void onResponse(ParsedResponse<T> response) {
-        if (response != null)
-            mResult = response.getParsedResponse();
+    public void onResponse(ParsedResponse<T> response) {
+        T result;
+        synchronized (this) {
+            if (response != null)
+                mResult = response.getParsedResponse();
+
+            mResultReceived = true;
+            notifyAll();
+            result = mResult;
+        }
 
-        mResultReceived = true;
-        notifyAll();
+        // the listeners may be called right away, so not while holding the lock
+        complete(result);
     }
 
     @Override
-    public synchronized void onErrorResponse(VolleyError error) {
-        mException = error;
-        mResultReceived = true;
-        notifyAll();
+    public void onErrorResponse(VolleyError error) {
+        synchronized (this) {
+            mException = error;
+            mResultReceived = true;
+            notifyAll();
+        }
+
+        fail(new ExecutionException(error));
     }
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+package com.rainy.networkhelper.mapper;
+
+import com.google.gson.JsonElement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Base class of the mappers of binary formats that have the same data model as JSON
+ * (maps, arrays, strings, numbers, booleans and null), like MessagePack and CBOR.
+ * <p>
+ * The types that have an {@link Adapter} registered are written and read straight with the
+ * writer and the reader of the format, without reflection. Every other type is converted
+ * by the Gson type adapters of a {@link GsonBodyMapper} from and to a JSON tree, so the same
+ * classes (with the same Gson annotations) can be used as with JSON, at the cost of the tree.
+ * <p>
+ * The mappers are thread safe, and should be reused between requests.
+ *
+ * @param <W> The writer of the format.
+ * @param <R> The reader of the format.
+ */
+public abstract class BinaryBodyMapper<W, R> implements StreamingBodyMapper
+{
+	private final ConcurrentMap<Type, Adapter<W, R, ?>> adapters = new ConcurrentHashMap<>();
+	private final GsonBodyMapper gsonMapper;
+
+	protected BinaryBodyMapper(GsonBodyMapper gsonMapper)
+	{
+		this.gsonMapper = gsonMapper;
+	}
+
+	/**
+	 * Writes and reads the values of a type directly with the writer and the reader of the format.
+	 */
+	public interface Adapter<W, R, T>
+	{
+		void write(W writer, T value) throws IOException;
+
+		T read(R reader) throws IOException;
+	}
+
+	/**
+	 * Registers the adapter of the given type. The type must be the exact class of the
+	 * encoded objects, and the exact response type of the requests.
+	 */
+	protected void registerAdapter(Type type, Adapter<W, R, ?> adapter)
+	{
+		adapters.put(type, adapter);
+	}
+
+	protected abstract W newWriter(OutputStream out) throws IOException;
+
+	/**
+	 * Flushes the writer, without closing the stream it writes to.
+	 */
+	protected abstract void finishWriting(W writer) throws IOException;
+
+	protected abstract R newReader(InputStream in) throws IOException;
+
+	protected R newReader(byte[] data) throws IOException
+	{
+		return newReader(new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * Releases the reader, without closing the stream it reads from.
+	 */
+	protected void finishReading(R reader) throws IOException
+	{
+	}
+
+	protected abstract void writeTree(W writer, JsonElement element) throws IOException;
+
+	/**
+	 * @return The next value read as a JSON tree, or null if there are no more values.
+	 */
+	protected abstract JsonElement readTree(R reader) throws IOException;
+
+	@Override
+	public byte[] encodeParams(Object object, String encoding) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encodeTo(object, out, encoding);
+		return out.toByteArray();
+	}
+
+	@Override
+	public void encodeTo(Object object, OutputStream out, String encoding) throws Exception
+	{
+		W writer = newWriter(out);
+		write(writer, object);
+		finishWriting(writer);
+	}
+
+	/**
+	 * Writes the given object with its adapter, or through a JSON tree if it has none.
+	 */
+	@SuppressWarnings("unchecked")
+	protected final void write(W writer, Object object) throws IOException
+	{
+		Adapter<W, R, Object> adapter = object != null ? (Adapter<W, R, Object>) adapters.get(object.getClass()) : null;
+		if (adapter != null)
+			adapter.write(writer, object);
+		else if (object == null)
+			writeTree(writer, null);
+		else
+			writeTree(writer, gsonMapper.<Object>getAdapter(object.getClass()).toJsonTree(object));
+	}
+
+	@Override
+	public <T> T decodeParams(byte[] data, Class<T> clazz, String encoding) throws Exception
+	{
+		return decodeParams(data, (Type) clazz, encoding);
+	}
+
+	@Override
+	public <T> T decodeParams(byte[] data, Type type, String encoding) throws Exception
+	{
+		return read(newReader(data), type);
+	}
+
+	@Override
+	public <T> T decodeParams(InputStream data, Type type, String encoding) throws Exception
+	{
+		return read(newReader(data), type);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T read(R reader, Type type) throws IOException
+	{
+		try
+		{
+			Adapter<W, R, T> adapter = (Adapter<W, R, T>) adapters.get(type);
+			if (adapter != null)
+				return adapter.read(reader);
+
+			// an empty body is read as null, like an empty JSON document
+			JsonElement tree = readTree(reader);
+			return tree != null ? gsonMapper.<T>getAdapter(type).fromJsonTree(tree) : null;
+		} finally
+		{
+			finishReading(reader);
+		}
+	}
+
+	/**
+	 * Converts the number of a JSON tree to the one the binary formats can write:
+	 * a {@link Long} or a {@link BigInteger} if it is integral, otherwise a {@link Double}.
+	 */
+	protected static Number normalize(Number number)
+	{
+		if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte)
+			return number.longValue();
+		if (number instanceof Double || number instanceof Float)
+			return number.doubleValue();
+		if (number instanceof BigInteger)
+			return ((BigInteger) number).bitLength() < 64 ? (Number) number.longValue() : number;
+
+		// the numbers parsed by Gson are only parsed when they are used
+		String value = number.toString();
+		if (value.indexOf('.') >= 0 || value.indexOf('e') >= 0 || value.indexOf('E') >= 0)
+			return Double.parseDouble(value);
+
+		try
+		{
+			return Long.parseLong(value);
+		} catch (NumberFormatException e)
+		{
+			return new BigInteger(value);
+		}
+	}
+}
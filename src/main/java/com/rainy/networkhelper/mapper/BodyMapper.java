@@ -9,6 +9,9 @@ public interface BodyMapper
 {
 	String CONTENT_TYPE_JSON = "application/json";
 	String CONTENT_TYPE_FORM = "application/x-www-form-urlencoded";
+	String CONTENT_TYPE_PROTOBUF = "application/x-protobuf";
+	String CONTENT_TYPE_MSGPACK = "application/msgpack";
+	String CONTENT_TYPE_CBOR = "application/cbor";
 
 	byte[] encodeParams(Object object, String encoding) throws Exception;
 	<T> T decodeParams(byte[] data, Class<T> clazz, String encoding) throws Exception;
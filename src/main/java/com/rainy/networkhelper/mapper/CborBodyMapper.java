@@ -0,0 +1,214 @@
+package com.rainy.networkhelper.mapper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORParser;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * Mapper of CBOR bodies. It needs the {@code com.fasterxml.jackson.dataformat:jackson-dataformat-cbor}
+ * library, which the apps that use it have to add themselves. Only its streaming generator and parser
+ * are used, not Jackson's data binding.
+ * <p>
+ * Register an {@link Adapter} for the types of the high volume endpoints, so they are written and
+ * read directly. The rest of the types are converted with Gson, see {@link BinaryBodyMapper}.
+ */
+public class CborBodyMapper extends BinaryBodyMapper<JsonGenerator, JsonParser>
+{
+	private static final int TAG_POSITIVE_BIGNUM = 2;
+	private static final int TAG_NEGATIVE_BIGNUM = 3;
+
+	private final CBORFactory factory = new CBORFactory();
+
+	public CborBodyMapper()
+	{
+		this(new GsonBodyMapper());
+	}
+
+	/**
+	 * @param gsonMapper The mapper whose Gson type adapters convert the types that have no adapter.
+	 */
+	public CborBodyMapper(GsonBodyMapper gsonMapper)
+	{
+		super(gsonMapper);
+		// the streams belong to the caller
+		factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		factory.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+	}
+
+	/**
+	 * Adapter of a type. The parser is passed to {@link #read} before the first token of the
+	 * value, so the adapter has to advance it with {@code nextToken()} itself.
+	 */
+	public interface Adapter<T> extends BinaryBodyMapper.Adapter<JsonGenerator, JsonParser, T>
+	{
+	}
+
+	/**
+	 * Registers the adapter that writes and reads the values of the given type.
+	 */
+	public <T> CborBodyMapper register(Type type, Adapter<T> adapter)
+	{
+		registerAdapter(type, adapter);
+		return this;
+	}
+
+	@Override
+	protected JsonGenerator newWriter(OutputStream out) throws IOException
+	{
+		return factory.createGenerator(out);
+	}
+
+	@Override
+	protected void finishWriting(JsonGenerator generator) throws IOException
+	{
+		// closing the generator only flushes it, and releases its buffers
+		generator.close();
+	}
+
+	@Override
+	protected JsonParser newReader(InputStream in) throws IOException
+	{
+		return factory.createParser(in);
+	}
+
+	@Override
+	protected JsonParser newReader(byte[] data) throws IOException
+	{
+		return factory.createParser(data);
+	}
+
+	@Override
+	protected void finishReading(JsonParser parser) throws IOException
+	{
+		parser.close();
+	}
+
+	@Override
+	protected void writeTree(JsonGenerator generator, JsonElement element) throws IOException
+	{
+		if (element == null || element.isJsonNull())
+		{
+			generator.writeNull();
+		} else if (element.isJsonPrimitive())
+		{
+			JsonPrimitive primitive = element.getAsJsonPrimitive();
+			if (primitive.isBoolean())
+				generator.writeBoolean(primitive.getAsBoolean());
+			else if (primitive.isNumber())
+				writeNumber(generator, normalize(primitive.getAsNumber()));
+			else
+				generator.writeString(primitive.getAsString());
+		} else if (element.isJsonArray())
+		{
+			JsonArray array = element.getAsJsonArray();
+			generator.writeStartArray(array.size());
+			for (JsonElement item : array)
+				writeTree(generator, item);
+			generator.writeEndArray();
+		} else
+		{
+			generator.writeStartObject();
+			for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet())
+			{
+				generator.writeFieldName(entry.getKey());
+				writeTree(generator, entry.getValue());
+			}
+			generator.writeEndObject();
+		}
+	}
+
+	private static void writeNumber(JsonGenerator generator, Number number) throws IOException
+	{
+		if (number instanceof Long)
+			generator.writeNumber(number.longValue());
+		else if (number instanceof BigInteger)
+			generator.writeNumber((BigInteger) number);
+		else
+			generator.writeNumber(number.doubleValue());
+	}
+
+	@Override
+	protected JsonElement readTree(JsonParser parser) throws IOException
+	{
+		JsonToken token = parser.nextToken();
+		return token != null ? readValue(parser, token) : null;
+	}
+
+	private static JsonElement readValue(JsonParser parser, JsonToken token) throws IOException
+	{
+		// the parser returns null at the end of the input, which is truncated inside an array or an object
+		if (token == null)
+			throw new JsonParseException(parser, "Unexpected end of input");
+
+		switch (token)
+		{
+			case VALUE_NULL:
+				return JsonNull.INSTANCE;
+			case VALUE_TRUE:
+				return new JsonPrimitive(true);
+			case VALUE_FALSE:
+				return new JsonPrimitive(false);
+			case VALUE_NUMBER_INT:
+				if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER)
+					return new JsonPrimitive(parser.getBigIntegerValue());
+				return new JsonPrimitive(parser.getLongValue());
+			case VALUE_NUMBER_FLOAT:
+				return new JsonPrimitive(parser.getDoubleValue());
+			case VALUE_STRING:
+				return new JsonPrimitive(parser.getText());
+			case VALUE_EMBEDDED_OBJECT:
+				byte[] data = parser.getBinaryValue();
+				// big integers are tagged byte strings, which the parser doesn't decode
+				int tag = parser instanceof CBORParser ? ((CBORParser) parser).getCurrentTag() : -1;
+				if (tag == TAG_POSITIVE_BIGNUM)
+					return new JsonPrimitive(new BigInteger(1, data));
+				if (tag == TAG_NEGATIVE_BIGNUM)
+					return new JsonPrimitive(BigInteger.ONE.negate().subtract(new BigInteger(1, data)));
+
+				// the rest of the byte strings are read the same as the JSON form of a byte array
+				JsonArray bytes = new JsonArray();
+				for (byte b : data)
+					bytes.add(new JsonPrimitive(b));
+				return bytes;
+			case START_ARRAY:
+				JsonArray array = new JsonArray();
+				for (JsonToken next = parser.nextToken(); next != JsonToken.END_ARRAY; next = parser.nextToken())
+					array.add(readValue(parser, next));
+				return array;
+			case START_OBJECT:
+				JsonObject object = new JsonObject();
+				JsonToken field;
+				for (field = parser.nextToken(); field == JsonToken.FIELD_NAME; field = parser.nextToken())
+				{
+					String key = parser.getCurrentName();
+					object.add(key, readValue(parser, parser.nextToken()));
+				}
+				if (field != JsonToken.END_OBJECT)
+					throw new JsonParseException(parser, field == null ? "Unexpected end of input" : "Unexpected token: " + field);
+				return object;
+			default:
+				throw new JsonParseException(parser, "Unexpected token: " + token);
+		}
+	}
+
+	@Override
+	public String getContentType()
+	{
+		return CONTENT_TYPE_CBOR;
+	}
+}
@@ -2,6 +2,10 @@ package com.rainy.networkhelper.mapper;
 
 import com.rainy.networkhelper.util.ReflectionUtil;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.lang.reflect.Type;
 import java.net.URLEncoder;
 import java.util.Iterator;
@@ -9,25 +13,33 @@ import java.util.Iterator;
 /**
  * Created by szantogabor on 20/02/15.
  */
-public class FormBodyMapper implements BodyMapper
+public class FormBodyMapper implements StreamingBodyMapper
 {
 	@Override
 	public byte[] encodeParams(Object object, String encoding) throws Exception
 	{
-		StringBuilder encodedParams = new StringBuilder();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encodeTo(object, out, encoding);
+		return out.toByteArray();
+	}
+
+	@Override
+	public void encodeTo(Object object, OutputStream out, String encoding) throws Exception
+	{
+		OutputStreamWriter encodedParams = new OutputStreamWriter(out, encoding);
 
 		Iterator uee = ReflectionUtil.convertObjectToMap(object).entrySet().iterator();
 
 		while (uee.hasNext())
 		{
 			java.util.Map.Entry entry = (java.util.Map.Entry) uee.next();
-			encodedParams.append(URLEncoder.encode((String) entry.getKey(), encoding));
-			encodedParams.append('=');
-			encodedParams.append(URLEncoder.encode(entry.getValue().toString(), encoding));
-			encodedParams.append('&');
+			encodedParams.write(URLEncoder.encode((String) entry.getKey(), encoding));
+			encodedParams.write('=');
+			encodedParams.write(URLEncoder.encode(entry.getValue().toString(), encoding));
+			encodedParams.write('&');
 		}
 
-		return encodedParams.toString().getBytes(encoding);
+		encodedParams.flush();
 	}
 
 	public <T> T decodeParams(byte[] data, Class<T> clazz, String encoding) throws Exception
@@ -40,9 +52,14 @@ public class FormBodyMapper implements BodyMapper
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public <T> T decodeParams(InputStream data, Type type, String encoding) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public String getContentType()
 	{
 		return CONTENT_TYPE_FORM;
 	}
-}
\ No newline at end of file
+}
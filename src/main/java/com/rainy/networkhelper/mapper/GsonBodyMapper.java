@@ -2,39 +2,177 @@ package com.rainy.networkhelper.mapper;
 
 import com.google.gson.ExclusionStrategy;
 import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.rainy.networkhelper.annotation.HeaderParam;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Created by szantogabor on 20/02/15.
+ * <p>
+ * The {@link Gson} instance is created from {@link #getGsonBuilder()} only once,
+ * when the mapper is first used, and the type adapters are cached per type, so
+ * a mapper instance should be reused between requests. It is thread safe.
  */
-public class GsonBodyMapper implements BodyMapper
+public class GsonBodyMapper implements StreamingBodyMapper
 {
+	/**
+	 * Encoding buffers that grew larger than this are not kept for reuse.
+	 */
+	private static final int MAX_REUSED_BUFFER_SIZE = 64 * 1024;
+
+	private static final ThreadLocal<ByteArrayOutputStream> buffers = new ThreadLocal<>();
+
+	private final ConcurrentMap<Type, TypeAdapter<?>> adapters = new ConcurrentHashMap<>();
+	private volatile Gson gson;
+
 	protected GsonBuilder getGsonBuilder()
 	{
 		return new GsonBuilder().setExclusionStrategies(new ExcludeHeaderStrategy());
 	}
 
+	/**
+	 * @return The Gson instance of this mapper, which is created from {@link #getGsonBuilder()} on the first call.
+	 */
+	protected Gson getGson()
+	{
+		Gson result = gson;
+		if (result == null)
+		{
+			synchronized (this)
+			{
+				result = gson;
+				if (result == null)
+					gson = result = getGsonBuilder().create();
+			}
+		}
+
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected <T> TypeAdapter<T> getAdapter(Type type)
+	{
+		TypeAdapter<T> adapter = (TypeAdapter<T>) adapters.get(type);
+		if (adapter == null)
+		{
+			adapter = (TypeAdapter<T>) getGson().getAdapter(TypeToken.get(type));
+			adapters.putIfAbsent(type, adapter);
+		}
+
+		return adapter;
+	}
+
 	@Override
 	public byte[] encodeParams(Object object, String encoding) throws Exception
 	{
-		return getGsonBuilder().create().toJson(object).getBytes(encoding);
+		ByteArrayOutputStream buffer = buffers.get();
+		if (buffer == null)
+			buffer = new ByteArrayOutputStream();
+		else
+			buffers.set(null);
+
+		try
+		{
+			OutputStreamWriter writer = new OutputStreamWriter(buffer, encoding);
+			write(object, writer);
+			writer.flush();
+			return buffer.toByteArray();
+		} finally
+		{
+			if (buffer.size() <= MAX_REUSED_BUFFER_SIZE)
+			{
+				buffer.reset();
+				buffers.set(buffer);
+			}
+		}
+	}
+
+	@Override
+	public void encodeTo(Object object, OutputStream out, String encoding) throws Exception
+	{
+		OutputStreamWriter writer = new OutputStreamWriter(out, encoding);
+		write(object, writer);
+		writer.flush();
+	}
+
+	private void write(Object object, Writer writer) throws Exception
+	{
+		JsonWriter jsonWriter = getGson().newJsonWriter(writer);
+		jsonWriter.setLenient(true);
+
+		if (object == null)
+			jsonWriter.nullValue();
+		else
+			this.<Object>getAdapter(object.getClass()).write(jsonWriter, object);
+
+		jsonWriter.flush();
 	}
 
 	@Override
 	public <T> T decodeParams(byte[] data, Class<T> clazz, String encoding) throws Exception
 	{
-		String json = new String(data, encoding);
-		return getGsonBuilder().create().fromJson(json, clazz);
+		return decodeParams(data, (Type) clazz, encoding);
 	}
 
 	@Override
 	public <T> T decodeParams(byte[] data, Type type, String encoding) throws Exception
 	{
-		String json = new String(data, encoding);
-		return getGsonBuilder().create().fromJson(json, type);
+		return decodeParams(new ByteArrayInputStream(data), type, encoding);
+	}
+
+	@Override
+	public <T> T decodeParams(InputStream data, Type type, String encoding) throws Exception
+	{
+		JsonReader reader = getGson().newJsonReader(new InputStreamReader(data, encoding));
+		T result = read(reader, type);
+
+		if (result != null && reader.peek() != JsonToken.END_DOCUMENT)
+			throw new JsonSyntaxException("JSON document was not fully consumed.");
+
+		return result;
+	}
+
+	/**
+	 * Reads a single value the same way as {@link Gson#fromJson(JsonReader, Type)} does,
+	 * but with the cached type adapter.
+	 */
+	private <T> T read(JsonReader reader, Type type) throws Exception
+	{
+		boolean isEmpty = true;
+		reader.setLenient(true);
+
+		try
+		{
+			reader.peek();
+			isEmpty = false;
+			TypeAdapter<T> adapter = getAdapter(type);
+			return adapter.read(reader);
+		} catch (EOFException e)
+		{
+			// an empty document is read as null
+			if (isEmpty)
+				return null;
+
+			throw new JsonSyntaxException(e);
+		}
 	}
 
 	public class ExcludeHeaderStrategy implements ExclusionStrategy
@@ -55,4 +193,4 @@ public class GsonBodyMapper implements BodyMapper
 	{
 		return CONTENT_TYPE_JSON;
 	}
-}
\ No newline at end of file
+}
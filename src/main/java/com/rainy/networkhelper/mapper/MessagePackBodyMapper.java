@@ -0,0 +1,192 @@
+package com.rainy.networkhelper.mapper;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessageFormat;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessagePacker;
+import org.msgpack.core.MessageUnpacker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * Mapper of MessagePack bodies. It needs the {@code org.msgpack:msgpack-core} library,
+ * which the apps that use it have to add themselves.
+ * <p>
+ * Register an {@link Adapter} for the types of the high volume endpoints, so they are packed and
+ * unpacked directly. The rest of the types are converted with Gson, see {@link BinaryBodyMapper}.
+ */
+public class MessagePackBodyMapper extends BinaryBodyMapper<MessagePacker, MessageUnpacker>
+{
+	public MessagePackBodyMapper()
+	{
+		this(new GsonBodyMapper());
+	}
+
+	/**
+	 * @param gsonMapper The mapper whose Gson type adapters convert the types that have no adapter.
+	 */
+	public MessagePackBodyMapper(GsonBodyMapper gsonMapper)
+	{
+		super(gsonMapper);
+	}
+
+	public interface Adapter<T> extends BinaryBodyMapper.Adapter<MessagePacker, MessageUnpacker, T>
+	{
+	}
+
+	/**
+	 * Registers the adapter that packs and unpacks the values of the given type.
+	 */
+	public <T> MessagePackBodyMapper register(Type type, Adapter<T> adapter)
+	{
+		registerAdapter(type, adapter);
+		return this;
+	}
+
+	@Override
+	public byte[] encodeParams(Object object, String encoding) throws Exception
+	{
+		MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+		write(packer, object);
+		return packer.toByteArray();
+	}
+
+	@Override
+	protected MessagePacker newWriter(OutputStream out)
+	{
+		return MessagePack.newDefaultPacker(out);
+	}
+
+	@Override
+	protected void finishWriting(MessagePacker packer) throws IOException
+	{
+		packer.flush();
+	}
+
+	@Override
+	protected MessageUnpacker newReader(InputStream in)
+	{
+		return MessagePack.newDefaultUnpacker(in);
+	}
+
+	@Override
+	protected MessageUnpacker newReader(byte[] data)
+	{
+		return MessagePack.newDefaultUnpacker(data);
+	}
+
+	@Override
+	protected void writeTree(MessagePacker packer, JsonElement element) throws IOException
+	{
+		if (element == null || element.isJsonNull())
+		{
+			packer.packNil();
+		} else if (element.isJsonPrimitive())
+		{
+			JsonPrimitive primitive = element.getAsJsonPrimitive();
+			if (primitive.isBoolean())
+				packer.packBoolean(primitive.getAsBoolean());
+			else if (primitive.isNumber())
+				packNumber(packer, normalize(primitive.getAsNumber()));
+			else
+				packer.packString(primitive.getAsString());
+		} else if (element.isJsonArray())
+		{
+			JsonArray array = element.getAsJsonArray();
+			packer.packArrayHeader(array.size());
+			for (JsonElement item : array)
+				writeTree(packer, item);
+		} else
+		{
+			JsonObject object = element.getAsJsonObject();
+			packer.packMapHeader(object.entrySet().size());
+			for (Map.Entry<String, JsonElement> entry : object.entrySet())
+			{
+				packer.packString(entry.getKey());
+				writeTree(packer, entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Packs a normalized number. MessagePack has no integers bigger than 64 bits, so those are packed as doubles.
+	 */
+	private static void packNumber(MessagePacker packer, Number number) throws IOException
+	{
+		if (number instanceof Long)
+			packer.packLong(number.longValue());
+		else if (number instanceof BigInteger && ((BigInteger) number).signum() > 0 && ((BigInteger) number).bitLength() <= 64)
+			packer.packBigInteger((BigInteger) number);
+		else
+			packer.packDouble(number.doubleValue());
+	}
+
+	@Override
+	protected JsonElement readTree(MessageUnpacker unpacker) throws IOException
+	{
+		return unpacker.hasNext() ? readValue(unpacker) : null;
+	}
+
+	private static JsonElement readValue(MessageUnpacker unpacker) throws IOException
+	{
+		MessageFormat format = unpacker.getNextFormat();
+		switch (format.getValueType())
+		{
+			case NIL:
+				unpacker.unpackNil();
+				return JsonNull.INSTANCE;
+			case BOOLEAN:
+				return new JsonPrimitive(unpacker.unpackBoolean());
+			case INTEGER:
+				if (format == MessageFormat.UINT64)
+					return new JsonPrimitive(unpacker.unpackBigInteger());
+				return new JsonPrimitive(unpacker.unpackLong());
+			case FLOAT:
+				return new JsonPrimitive(unpacker.unpackDouble());
+			case STRING:
+				return new JsonPrimitive(unpacker.unpackString());
+			case BINARY:
+				// the same as the JSON form of a byte array
+				JsonArray bytes = new JsonArray();
+				for (byte b : unpacker.readPayload(unpacker.unpackBinaryHeader()))
+					bytes.add(new JsonPrimitive(b));
+				return bytes;
+			case ARRAY:
+				int size = unpacker.unpackArrayHeader();
+				JsonArray array = new JsonArray();
+				for (int i = 0; i < size; i++)
+					array.add(readValue(unpacker));
+				return array;
+			case MAP:
+				int entries = unpacker.unpackMapHeader();
+				JsonObject object = new JsonObject();
+				for (int i = 0; i < entries; i++)
+				{
+					String key = readValue(unpacker).getAsString();
+					object.add(key, readValue(unpacker));
+				}
+				return object;
+			default:
+				// extension types have no JSON form
+				unpacker.skipValue();
+				return JsonNull.INSTANCE;
+		}
+	}
+
+	@Override
+	public String getContentType()
+	{
+		return CONTENT_TYPE_MSGPACK;
+	}
+}
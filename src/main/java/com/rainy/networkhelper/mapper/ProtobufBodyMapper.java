@@ -0,0 +1,94 @@
+package com.rainy.networkhelper.mapper;
+
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Mapper of Protocol Buffers bodies. It needs the {@code com.google.protobuf:protobuf-javalite}
+ * library (or the full one), which the apps that use it have to add themselves.
+ * <p>
+ * The request bodies must be generated messages, and the response types must be generated
+ * message classes. The parser of a message class is looked up from its default instance when
+ * it is first used, or it can be registered up front with {@link #register}.
+ */
+public class ProtobufBodyMapper implements StreamingBodyMapper
+{
+	private final ConcurrentMap<Type, Parser<?>> parsers = new ConcurrentHashMap<>();
+
+	/**
+	 * Registers the parser of the given message class, so it doesn't have to be looked up.
+	 */
+	public <T extends MessageLite> ProtobufBodyMapper register(Class<T> type, Parser<T> parser)
+	{
+		parsers.put(type, parser);
+		return this;
+	}
+
+	@Override
+	public byte[] encodeParams(Object object, String encoding) throws Exception
+	{
+		return object != null ? toMessage(object).toByteArray() : new byte[0];
+	}
+
+	@Override
+	public void encodeTo(Object object, OutputStream out, String encoding) throws Exception
+	{
+		if (object != null)
+			toMessage(object).writeTo(out);
+	}
+
+	@Override
+	public <T> T decodeParams(byte[] data, Class<T> clazz, String encoding) throws Exception
+	{
+		return decodeParams(data, (Type) clazz, encoding);
+	}
+
+	@Override
+	public <T> T decodeParams(byte[] data, Type type, String encoding) throws Exception
+	{
+		return this.<T>getParser(type).parseFrom(data);
+	}
+
+	@Override
+	public <T> T decodeParams(InputStream data, Type type, String encoding) throws Exception
+	{
+		return this.<T>getParser(type).parseFrom(data);
+	}
+
+	private static MessageLite toMessage(Object object)
+	{
+		if (!(object instanceof MessageLite))
+			throw new IllegalArgumentException(object.getClass().getName() + " is not a protobuf message");
+
+		return (MessageLite) object;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Parser<T> getParser(Type type) throws Exception
+	{
+		Parser<T> parser = (Parser<T>) parsers.get(type);
+		if (parser == null)
+		{
+			if (!(type instanceof Class) || !MessageLite.class.isAssignableFrom((Class<?>) type))
+				throw new IllegalArgumentException(type + " is not a protobuf message class");
+
+			MessageLite defaultInstance = (MessageLite) ((Class<?>) type).getMethod("getDefaultInstance").invoke(null);
+			parser = (Parser<T>) defaultInstance.getParserForType();
+			parsers.putIfAbsent(type, parser);
+		}
+
+		return parser;
+	}
+
+	@Override
+	public String getContentType()
+	{
+		return CONTENT_TYPE_PROTOBUF;
+	}
+}
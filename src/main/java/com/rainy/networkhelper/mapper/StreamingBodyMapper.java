@@ -0,0 +1,25 @@
+package com.rainy.networkhelper.mapper;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * A {@link BodyMapper} that can also encode the request straight into the
+ * connection, and decode the response while it is being read from it,
+ * without materializing the whole body in memory first.
+ * See {@link com.rainy.networkhelper.request.ParserRequest#setStreamBody(boolean)}
+ * and {@link com.rainy.networkhelper.request.ParserRequest#setStreamResponse(boolean)}.
+ */
+public interface StreamingBodyMapper extends BodyMapper
+{
+	/**
+	 * Encodes the given object into the given stream. The stream must not be closed by the mapper.
+	 */
+	void encodeTo(Object object, OutputStream out, String encoding) throws Exception;
+
+	/**
+	 * Decodes the response from the given stream. The stream must not be closed by the mapper.
+	 */
+	<T> T decodeParams(InputStream data, Type type, String encoding) throws Exception;
+}
@@ -0,0 +1,144 @@
+package com.rainy.networkhelper.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link RequestMetricsListener} that aggregates the metrics per endpoint: the method and the
+ * URL template of the request (so {@code /users/1} and {@code /users/2} are the same endpoint).
+ * It keeps latency histograms of the total, network and parse times, and counts the requests,
+ * errors, cache hits and bytes. Recording is lock-free and allocation-free, so it can stay on
+ * in production.
+ */
+public class EndpointMetricsAggregator implements RequestMetricsListener {
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRequestMetrics(RequestMetrics metrics) {
+        String key = metrics.getMethod() + " " + metrics.getEndpoint();
+        Endpoint endpoint = endpoints.get(key);
+        if (endpoint == null) {
+            endpoint = new Endpoint(metrics.getMethod(), metrics.getEndpoint());
+            Endpoint previous = endpoints.putIfAbsent(key, endpoint);
+            if (previous != null)
+                endpoint = previous;
+        }
+
+        endpoint.record(metrics);
+    }
+
+    /**
+     * @return The statistics of every endpoint seen so far.
+     */
+    public List<Endpoint> getEndpoints() {
+        return new ArrayList<>(endpoints.values());
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    public static final class Endpoint {
+        private final int method;
+        private final String urlTemplate;
+        private final LatencyHistogram totalUs = new LatencyHistogram();
+        private final LatencyHistogram networkUs = new LatencyHistogram();
+        private final LatencyHistogram parseUs = new LatencyHistogram();
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final AtomicLong cacheHitCount = new AtomicLong();
+        private final AtomicLong requestBytes = new AtomicLong();
+        private final AtomicLong responseBytes = new AtomicLong();
+        private final AtomicLong requestWireBytes = new AtomicLong();
+        private final AtomicLong responseWireBytes = new AtomicLong();
+
+        Endpoint(int method, String urlTemplate) {
+            this.method = method;
+            this.urlTemplate = urlTemplate;
+        }
+
+        void record(RequestMetrics metrics) {
+            count.incrementAndGet();
+            if (!metrics.isSuccess())
+                errorCount.incrementAndGet();
+            if (metrics.isCacheHit())
+                cacheHitCount.incrementAndGet();
+            if (metrics.getRequestBytes() > 0)
+                requestBytes.addAndGet(metrics.getRequestBytes());
+            if (metrics.getResponseBytes() > 0)
+                responseBytes.addAndGet(metrics.getResponseBytes());
+            if (metrics.getRequestWireBytes() > 0)
+                requestWireBytes.addAndGet(metrics.getRequestWireBytes());
+            if (metrics.getResponseWireBytes() > 0)
+                responseWireBytes.addAndGet(metrics.getResponseWireBytes());
+
+            totalUs.record(metrics.getTotalUs());
+            networkUs.record(metrics.getNetworkUs());
+            parseUs.record(metrics.getParseUs());
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public String getUrlTemplate() {
+            return urlTemplate;
+        }
+
+        public LatencyHistogram getTotalUs() {
+            return totalUs;
+        }
+
+        public LatencyHistogram getNetworkUs() {
+            return networkUs;
+        }
+
+        public LatencyHistogram getParseUs() {
+            return parseUs;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getErrorCount() {
+            return errorCount.get();
+        }
+
+        public long getCacheHitCount() {
+            return cacheHitCount.get();
+        }
+
+        public long getRequestBytes() {
+            return requestBytes.get();
+        }
+
+        public long getResponseBytes() {
+            return responseBytes.get();
+        }
+
+        /**
+         * @return The bytes of the request bodies as they were sent, after compression.
+         */
+        public long getRequestWireBytes() {
+            return requestWireBytes.get();
+        }
+
+        /**
+         * @return The bytes of the response bodies as they were received, before decompression.
+         */
+        public long getResponseWireBytes() {
+            return responseWireBytes.get();
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + urlTemplate + ": count=" + getCount() + ", errors=" + getErrorCount()
+                    + ", p50=" + totalUs.getPercentile(50) + "us, p99=" + totalUs.getPercentile(99)
+                    + "us, responseBytes=" + getResponseBytes() + ", responseWireBytes=" + getResponseWireBytes();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.rainy.networkhelper.metrics;
+
+import com.android.volley.VolleyError;
+
+/**
+ * The timing breakdown of a delivered request, as it is published to the {@link RequestMetricsListener}s.
+ * The durations are in microseconds, and they are -1 if the phase didn't happen.
+ */
+public final class RequestMetrics {
+    private final String endpoint;
+    private final int method;
+    private final int statusCode;
+    private final VolleyError error;
+    private final boolean cacheHit;
+    private final long enqueueUs;
+    private final long cacheLookupUs;
+    private final long ttfbUs;
+    private final long downloadUs;
+    private final long networkUs;
+    private final long parseUs;
+    private final long deliveryWaitUs;
+    private final long totalUs;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final long requestWireBytes;
+    private final long responseWireBytes;
+
+    /**
+     * @param endpoint   The URL template of the request, like {@code http://somedomain.com/users/{userId}}.
+     * @param method     One of the {@code Request.Method} constants.
+     * @param error      The error that was delivered, or null if a response was delivered.
+     * @param timeline   The timeline of the request.
+     */
+    public RequestMetrics(String endpoint, int method, VolleyError error, RequestTimeline timeline) {
+        this.endpoint = endpoint;
+        this.method = method;
+        this.statusCode = error != null && error.networkResponse != null ? error.networkResponse.statusCode : timeline.getStatusCode();
+        this.error = error;
+        this.cacheHit = timeline.isCacheHit();
+
+        long queuedOrCache = timeline.getCacheStartedAt() != 0 ? timeline.getCacheStartedAt() : timeline.getNetworkStartedAt();
+        this.enqueueUs = between(timeline.getEnqueuedAt(), queuedOrCache);
+        this.cacheLookupUs = between(timeline.getCacheStartedAt(), timeline.getCacheFinishedAt());
+        this.ttfbUs = between(timeline.getNetworkStartedAt(), timeline.getHeadersReceivedAt());
+        this.downloadUs = between(timeline.getHeadersReceivedAt(), timeline.getNetworkFinishedAt());
+        this.networkUs = between(timeline.getNetworkStartedAt(), timeline.getNetworkFinishedAt());
+        this.parseUs = between(timeline.getParseStartedAt(), timeline.getParseFinishedAt());
+        this.deliveryWaitUs = between(timeline.getPostedAt(), timeline.getDeliveredAt());
+        this.totalUs = between(timeline.getEnqueuedAt(), timeline.getDeliveredAt());
+        this.requestBytes = timeline.getRequestBytes();
+        this.responseBytes = timeline.getResponseBytes();
+        this.requestWireBytes = timeline.getRequestWireBytes() >= 0 ? timeline.getRequestWireBytes() : requestBytes;
+        this.responseWireBytes = timeline.getResponseWireBytes() >= 0 ? timeline.getResponseWireBytes() : responseBytes;
+    }
+
+    private static long between(long start, long end) {
+        return start != 0 && end != 0 && end >= start ? (end - start) / 1000 : -1;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public int getMethod() {
+        return method;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public VolleyError getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    /**
+     * @return The time from sending the request (or starting its future) until a dispatcher took it.
+     */
+    public long getEnqueueUs() {
+        return enqueueUs;
+    }
+
+    public long getCacheLookupUs() {
+        return cacheLookupUs;
+    }
+
+    /**
+     * @return The time from the start of the network phase until the headers were received,
+     * including the wait for a connection and for the first byte.
+     */
+    public long getTtfbUs() {
+        return ttfbUs;
+    }
+
+    public long getDownloadUs() {
+        return downloadUs;
+    }
+
+    public long getNetworkUs() {
+        return networkUs;
+    }
+
+    /**
+     * @return The time spent decoding the response body.
+     */
+    public long getParseUs() {
+        return parseUs;
+    }
+
+    /**
+     * @return The time the response waited for the delivery thread.
+     */
+    public long getDeliveryWaitUs() {
+        return deliveryWaitUs;
+    }
+
+    public long getTotalUs() {
+        return totalUs;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * @return The size of the request body as it was sent, which is smaller than
+     * {@link #getRequestBytes()} if it was compressed.
+     */
+    public long getRequestWireBytes() {
+        return requestWireBytes;
+    }
+
+    /**
+     * @return The size of the response body as it was received, which is smaller than
+     * {@link #getResponseBytes()} if it was compressed.
+     */
+    public long getResponseWireBytes() {
+        return responseWireBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestMetrics{endpoint=" + endpoint + ", statusCode=" + statusCode + ", cacheHit=" + cacheHit
+                + ", enqueueUs=" + enqueueUs + ", cacheLookupUs=" + cacheLookupUs + ", ttfbUs=" + ttfbUs
+                + ", downloadUs=" + downloadUs + ", parseUs=" + parseUs + ", deliveryWaitUs=" + deliveryWaitUs
+                + ", totalUs=" + totalUs + ", responseBytes=" + responseBytes + ", responseWireBytes=" + responseWireBytes + "}";
+    }
+}
@@ -0,0 +1,40 @@
+package com.rainy.networkhelper.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Receives the {@link RequestMetrics} of every delivered request. The listeners are called on
+ * the delivery thread (the main thread by default) right after the request's own listener,
+ * so they should be quick. The metrics are only collected while there is a listener.
+ */
+public interface RequestMetricsListener {
+    void onRequestMetrics(RequestMetrics metrics);
+
+    /**
+     * The registered listeners.
+     */
+    final class Registry {
+        private static final List<RequestMetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+        private Registry() {
+        }
+
+        public static void add(RequestMetricsListener listener) {
+            listeners.add(listener);
+        }
+
+        public static void remove(RequestMetricsListener listener) {
+            listeners.remove(listener);
+        }
+
+        public static boolean isEmpty() {
+            return listeners.isEmpty();
+        }
+
+        public static void publish(RequestMetrics metrics) {
+            for (RequestMetricsListener listener : listeners)
+                listener.onRequestMetrics(metrics);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.rainy.networkhelper.metrics;
+
+/**
+ * Timestamps of the phases of a request, recorded while it is executed.
+ * The timestamps are taken with {@link System#nanoTime()}, and 0 means that
+ * the phase hasn't happened (for example there is no network phase for a cache hit).
+ * <p>
+ * Most of the timestamps are recorded by {@code BaseRequest} from Volley's markers,
+ * the rest by the HTTP stack and the response parsing.
+ */
+public final class RequestTimeline {
+    private volatile long enqueuedAt;
+    private volatile long queuedAt;
+    private volatile long cacheStartedAt;
+    private volatile long cacheFinishedAt;
+    private volatile long networkStartedAt;
+    private volatile long headersReceivedAt;
+    private volatile long networkFinishedAt;
+    private volatile long parseStartedAt;
+    private volatile long parseFinishedAt;
+    private volatile long postedAt;
+    private volatile long deliveredAt;
+    private volatile boolean cacheHit;
+    private volatile int statusCode = -1;
+    private volatile long requestBytes = -1;
+    private volatile long responseBytes = -1;
+    private volatile long requestWireBytes = -1;
+    private volatile long responseWireBytes = -1;
+
+    /**
+     * Called when the request is sent, or when its future is started, whichever comes first.
+     */
+    public void markEnqueued() {
+        if (enqueuedAt == 0)
+            enqueuedAt = System.nanoTime();
+    }
+
+    public void markQueued() {
+        queuedAt = System.nanoTime();
+    }
+
+    public void markCacheStarted() {
+        cacheStartedAt = System.nanoTime();
+    }
+
+    public void markCacheFinished(boolean hit) {
+        cacheFinishedAt = System.nanoTime();
+        cacheHit = hit;
+    }
+
+    public void markNetworkStarted() {
+        networkStartedAt = System.nanoTime();
+    }
+
+    /**
+     * Called by the HTTP stack when the status line and the headers of the response have been received.
+     */
+    public void markHeadersReceived() {
+        headersReceivedAt = System.nanoTime();
+    }
+
+    public void markNetworkFinished() {
+        networkFinishedAt = System.nanoTime();
+    }
+
+    public void markParseStarted() {
+        parseStartedAt = System.nanoTime();
+    }
+
+    public void markParseFinished() {
+        parseFinishedAt = System.nanoTime();
+    }
+
+    /**
+     * Called when the response (or error) is posted to the delivery thread.
+     */
+    public void markPosted() {
+        postedAt = System.nanoTime();
+    }
+
+    public void markDelivered() {
+        deliveredAt = System.nanoTime();
+    }
+
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public void setRequestBytes(long requestBytes) {
+        this.requestBytes = requestBytes;
+    }
+
+    public void setResponseBytes(long responseBytes) {
+        this.responseBytes = responseBytes;
+    }
+
+    public void setRequestWireBytes(long requestWireBytes) {
+        this.requestWireBytes = requestWireBytes;
+    }
+
+    public void setResponseWireBytes(long responseWireBytes) {
+        this.responseWireBytes = responseWireBytes;
+    }
+
+    public long getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    public long getQueuedAt() {
+        return queuedAt;
+    }
+
+    public long getCacheStartedAt() {
+        return cacheStartedAt;
+    }
+
+    public long getCacheFinishedAt() {
+        return cacheFinishedAt;
+    }
+
+    public long getNetworkStartedAt() {
+        return networkStartedAt;
+    }
+
+    public long getHeadersReceivedAt() {
+        return headersReceivedAt;
+    }
+
+    public long getNetworkFinishedAt() {
+        return networkFinishedAt;
+    }
+
+    public long getParseStartedAt() {
+        return parseStartedAt;
+    }
+
+    public long getParseFinishedAt() {
+        return parseFinishedAt;
+    }
+
+    public long getPostedAt() {
+        return postedAt;
+    }
+
+    public long getDeliveredAt() {
+        return deliveredAt;
+    }
+
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    /**
+     * @return The status code of the last response, or -1 if there was none.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * @return The size of the compressed request body, or -1 if it was not compressed.
+     */
+    public long getRequestWireBytes() {
+        return requestWireBytes;
+    }
+
+    /**
+     * @return The size of the compressed response body, or -1 if it was not compressed.
+     */
+    public long getResponseWireBytes() {
+        return responseWireBytes;
+    }
+}
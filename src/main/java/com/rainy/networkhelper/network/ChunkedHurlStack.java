@@ -0,0 +1,181 @@
+package com.rainy.networkhelper.network;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Header;
+import com.android.volley.Request;
+import com.android.volley.toolbox.HttpResponse;
+import com.android.volley.toolbox.HurlStack;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * A {@link HurlStack} that writes the body of {@link StreamingRequest}s straight into
+ * the connection using chunked transfer encoding, so large request bodies never have
+ * to be held in memory as a whole. Every other request is sent by {@link HurlStack}.
+ */
+public class ChunkedHurlStack extends HurlStack {
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+
+    private final UrlRewriter urlRewriter;
+    private final SSLSocketFactory sslSocketFactory;
+
+    public ChunkedHurlStack() {
+        this(null);
+    }
+
+    public ChunkedHurlStack(UrlRewriter urlRewriter) {
+        this(urlRewriter, null);
+    }
+
+    public ChunkedHurlStack(UrlRewriter urlRewriter, SSLSocketFactory sslSocketFactory) {
+        super(urlRewriter, sslSocketFactory);
+        this.urlRewriter = urlRewriter;
+        this.sslSocketFactory = sslSocketFactory;
+    }
+
+    @Override
+    public HttpResponse executeRequest(Request<?> request, Map<String, String> additionalHeaders) throws IOException, AuthFailureError {
+        if (!hasRequestBody(request.getMethod()) || !(request instanceof StreamingRequest) || !((StreamingRequest) request).shouldStreamBody())
+            return super.executeRequest(request, additionalHeaders);
+
+        String url = request.getUrl();
+        if (urlRewriter != null) {
+            String rewritten = urlRewriter.rewriteUrl(url);
+            if (rewritten == null) {
+                throw new IOException("URL blocked by rewriter: " + url);
+            }
+            url = rewritten;
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        headers.putAll(additionalHeaders);
+        // the request's own headers take precedence over the cache headers
+        headers.putAll(request.getHeaders());
+
+        URL parsedUrl = new URL(url);
+        HttpURLConnection connection = createConnection(parsedUrl);
+        boolean keepConnectionOpen = false;
+        try {
+            connection.setConnectTimeout(request.getTimeoutMs());
+            connection.setReadTimeout(request.getTimeoutMs());
+            connection.setUseCaches(false);
+            connection.setDoInput(true);
+            if ("https".equals(parsedUrl.getProtocol()) && sslSocketFactory != null) {
+                ((HttpsURLConnection) connection).setSSLSocketFactory(sslSocketFactory);
+            }
+
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            if (!headers.containsKey(HEADER_CONTENT_TYPE)) {
+                connection.setRequestProperty(HEADER_CONTENT_TYPE, request.getBodyContentType());
+            }
+
+            connection.setRequestMethod(getMethodName(request.getMethod()));
+            connection.setDoOutput(true);
+            connection.setChunkedStreamingMode(0);
+
+            OutputStream out = connection.getOutputStream();
+            try {
+                ((StreamingRequest) request).writeBody(out);
+            } finally {
+                out.close();
+            }
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode == -1) {
+                throw new IOException("Could not retrieve response code from HttpUrlConnection.");
+            }
+
+            List<Header> responseHeaders = convertHeaders(connection.getHeaderFields());
+            if (!hasResponseBody(responseCode)) {
+                return new HttpResponse(responseCode, responseHeaders);
+            }
+
+            keepConnectionOpen = true;
+            return new HttpResponse(responseCode, responseHeaders, connection.getContentLength(), new ConnectionInputStream(connection));
+        } finally {
+            if (!keepConnectionOpen) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static boolean hasRequestBody(int method) {
+        return method == Request.Method.POST || method == Request.Method.PUT || method == Request.Method.PATCH;
+    }
+
+    private static boolean hasResponseBody(int responseCode) {
+        return !(100 <= responseCode && responseCode < 200)
+                && responseCode != HttpURLConnection.HTTP_NO_CONTENT
+                && responseCode != HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+    private static String getMethodName(int method) {
+        switch (method) {
+            case Request.Method.PUT:
+                return "PUT";
+            case Request.Method.PATCH:
+                return "PATCH";
+            default:
+                return "POST";
+        }
+    }
+
+    private static List<Header> convertHeaders(Map<String, List<String>> responseHeaders) {
+        List<Header> headers = new ArrayList<>(responseHeaders.size());
+        for (Map.Entry<String, List<String>> entry : responseHeaders.entrySet()) {
+            // the status line is returned with a null key
+            if (entry.getKey() != null) {
+                for (String value : entry.getValue()) {
+                    headers.add(new Header(entry.getKey(), value));
+                }
+            }
+        }
+
+        return headers;
+    }
+
+    /**
+     * Input stream of the response, which also disconnects the connection when it is closed.
+     */
+    private static class ConnectionInputStream extends FilterInputStream {
+        private final HttpURLConnection connection;
+
+        ConnectionInputStream(HttpURLConnection connection) {
+            super(getInputStream(connection));
+            this.connection = connection;
+        }
+
+        private static InputStream getInputStream(HttpURLConnection connection) {
+            try {
+                return connection.getInputStream();
+            } catch (IOException e) {
+                InputStream errorStream = connection.getErrorStream();
+                return errorStream != null ? errorStream : new ByteArrayInputStream(new byte[0]);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+}
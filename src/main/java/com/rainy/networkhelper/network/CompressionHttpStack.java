@@ -0,0 +1,177 @@
+package com.rainy.networkhelper.network;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Header;
+import com.android.volley.Request;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.HttpResponse;
+import com.google.common.io.CountingInputStream;
+import com.rainy.networkhelper.metrics.RequestTimeline;
+import com.rainy.networkhelper.request.BaseRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A {@link BaseHttpStack} that asks for gzip or deflate compressed responses, and
+ * decompresses them while they are being read, so the body mappers (and the streamed
+ * responses of a {@link StreamingHttpStack} around it) always get the plain body. The
+ * compressed and decompressed sizes are recorded in the timeline of {@link BaseRequest}s.
+ * <p>
+ * If a request sets its own {@code Accept-Encoding} header, it is left as it is, and the
+ * responses with other encodings are passed through unchanged, just like the ones without
+ * a body (like a 304), which some servers still send with a {@code Content-Encoding}.
+ */
+public class CompressionHttpStack extends BaseHttpStack {
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+
+    private final BaseHttpStack stack;
+
+    public CompressionHttpStack(BaseHttpStack stack) {
+        this.stack = stack;
+    }
+
+    @Override
+    public HttpResponse executeRequest(Request<?> request, Map<String, String> additionalHeaders) throws IOException, AuthFailureError {
+        Map<String, String> headers = new HashMap<>(additionalHeaders);
+        if (!containsHeader(request.getHeaders(), HEADER_ACCEPT_ENCODING))
+            headers.put(HEADER_ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+
+        HttpResponse response = stack.executeRequest(request, headers);
+        InputStream content = response.getContent();
+        if (content == null || !hasBody(response))
+            return response;
+
+        String encoding = null;
+        List<Header> responseHeaders = new ArrayList<>(response.getHeaders().size());
+        for (Header header : response.getHeaders()) {
+            if (HEADER_CONTENT_ENCODING.equalsIgnoreCase(header.getName())) {
+                encoding = header.getValue().trim();
+            } else if (!HEADER_CONTENT_LENGTH.equalsIgnoreCase(header.getName())) {
+                responseHeaders.add(header);
+            }
+        }
+
+        boolean gzip = "gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding);
+        if (!gzip && !"deflate".equalsIgnoreCase(encoding))
+            return response;
+
+        RequestTimeline timeline = request instanceof BaseRequest ? ((BaseRequest<?>) request).getTimeline() : null;
+        return new HttpResponse(response.getStatusCode(), responseHeaders, -1, new DecompressedInputStream(content, gzip, timeline));
+    }
+
+    private static boolean hasBody(HttpResponse response) {
+        int statusCode = response.getStatusCode();
+        if (statusCode < 200 || statusCode == 204 || statusCode == 304)
+            return false;
+
+        return response.getContentLength() != 0;
+    }
+
+    private static boolean containsHeader(Map<String, String> headers, String name) {
+        if (headers == null)
+            return false;
+
+        for (String header : headers.keySet()) {
+            if (name.equalsIgnoreCase(header))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * The decompressed body, which records the sizes in the timeline when it is closed.
+     * The decompressor is only created when the first byte arrives, because
+     * {@link GZIPInputStream} reads the header right away and fails on an empty body.
+     */
+    private static class DecompressedInputStream extends FilterInputStream {
+        private final CountingInputStream counting;
+        private final PushbackInputStream compressed;
+        private final boolean gzip;
+        private final RequestTimeline timeline;
+        private long count = 0;
+
+        DecompressedInputStream(InputStream content, boolean gzip, RequestTimeline timeline) {
+            super(null);
+            this.counting = new CountingInputStream(content);
+            this.compressed = new PushbackInputStream(counting);
+            this.gzip = gzip;
+            this.timeline = timeline;
+        }
+
+        private InputStream decompressed() throws IOException {
+            if (in == null) {
+                int first = compressed.read();
+                if (first == -1) {
+                    in = new ByteArrayInputStream(new byte[0]);
+                } else {
+                    compressed.unread(first);
+                    in = gzip ? new GZIPInputStream(compressed) : new InflaterInputStream(compressed);
+                }
+            }
+
+            return in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = decompressed().read();
+            if (b != -1)
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = decompressed().read(buffer, offset, length);
+            if (read > 0)
+                count += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = decompressed().skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in != null ? in.available() : 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (in != null)
+                    in.close();
+                else
+                    compressed.close();
+            } finally {
+                if (timeline != null) {
+                    timeline.setResponseWireBytes(counting.getCount());
+                    timeline.setResponseBytes(count);
+                }
+            }
+        }
+    }
+}
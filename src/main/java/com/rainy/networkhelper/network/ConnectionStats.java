@@ -0,0 +1,93 @@
+package com.rainy.networkhelper.network;
+
+import java.util.Locale;
+
+/**
+ * A snapshot of the connection usage of an {@link OkHttpStack}: how many requests
+ * were sent on a connection that was already open, and how many had to open a new one.
+ */
+public final class ConnectionStats {
+    private final long requests;
+    private final long connectionsOpened;
+    private final long connectionsReused;
+    private final long connectionFailures;
+    private final long tlsHandshakes;
+    private final long http2Connections;
+    private final int pooledConnections;
+    private final int idleConnections;
+
+    ConnectionStats(long requests, long connectionsOpened, long connectionsReused, long connectionFailures,
+                    long tlsHandshakes, long http2Connections, int pooledConnections, int idleConnections) {
+        this.requests = requests;
+        this.connectionsOpened = connectionsOpened;
+        this.connectionsReused = connectionsReused;
+        this.connectionFailures = connectionFailures;
+        this.tlsHandshakes = tlsHandshakes;
+        this.http2Connections = http2Connections;
+        this.pooledConnections = pooledConnections;
+        this.idleConnections = idleConnections;
+    }
+
+    /**
+     * @return The number of requests that have been sent, including the retries.
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return The number of connections that have been opened.
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened;
+    }
+
+    /**
+     * @return The number of requests that were sent on a connection that was already open.
+     * On HTTP/2 connections this includes the requests multiplexed with others.
+     */
+    public long getConnectionsReused() {
+        return connectionsReused;
+    }
+
+    public long getConnectionFailures() {
+        return connectionFailures;
+    }
+
+    public long getTlsHandshakes() {
+        return tlsHandshakes;
+    }
+
+    /**
+     * @return The number of opened connections that negotiated HTTP/2.
+     */
+    public long getHttp2Connections() {
+        return http2Connections;
+    }
+
+    /**
+     * @return The number of connections in the pool when the snapshot was taken, both idle and in use.
+     */
+    public int getPooledConnections() {
+        return pooledConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * @return The ratio of the connection acquisitions that reused an open connection, between 0 and 1.
+     */
+    public double getReuseRatio() {
+        long acquired = connectionsOpened + connectionsReused;
+        return acquired > 0 ? (double) connectionsReused / acquired : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "requests=%d opened=%d reused=%d (%.1f%%) failed=%d tls=%d h2=%d pooled=%d idle=%d",
+                requests, connectionsOpened, connectionsReused, getReuseRatio() * 100, connectionFailures,
+                tlsHandshakes, http2Connections, pooledConnections, idleConnections);
+    }
+}
@@ -0,0 +1,293 @@
+package com.rainy.networkhelper.network;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Header;
+import com.android.volley.Request;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.HttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+
+/**
+ * A {@link BaseHttpStack} on top of OkHttp. Its connections are kept in an explicit
+ * {@link ConnectionPool}, so the requests to the same host reuse a few keep-alive
+ * connections, and on HTTP/2 they are multiplexed over a single one instead of doing
+ * a TLS handshake for each parallel request. The connection usage can be queried
+ * with {@link #getStats()}.
+ * <p>
+ * OkHttp is an optional dependency, add it to the app to use this stack:
+ * <pre>
+ * compile 'com.squareup.okhttp3:okhttp:3.12.13'
+ * </pre>
+ * Like {@link ChunkedHurlStack}, it writes the body of {@link StreamingRequest}s straight
+ * into the connection. Wrap it in a {@link StreamingHttpStack} to stream the responses too.
+ */
+public class OkHttpStack extends BaseHttpStack {
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 8;
+    public static final long DEFAULT_KEEP_ALIVE_MS = 5 * 60 * 1000;
+
+    /**
+     * The clients with a different timeout than the default one are cached, but only this many of them.
+     */
+    private static final int MAX_CACHED_CLIENTS = 8;
+
+    private final OkHttpClient client;
+    private final ConcurrentMap<Integer, OkHttpClient> clientsByTimeout = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsReused = new AtomicLong();
+    private final AtomicLong connectionFailures = new AtomicLong();
+    private final AtomicLong tlsHandshakes = new AtomicLong();
+    private final AtomicLong http2Connections = new AtomicLong();
+
+    public OkHttpStack() {
+        this(new ConnectionPool(DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @param connectionPool The pool of the connections, which can also be shared with other clients.
+     */
+    public OkHttpStack(ConnectionPool connectionPool) {
+        this(new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .build());
+    }
+
+    /**
+     * @param client The client to send the requests with. Its event listener is replaced
+     *               by the one that collects the {@link ConnectionStats}.
+     */
+    public OkHttpStack(OkHttpClient client) {
+        this.client = client.newBuilder()
+                .eventListenerFactory(new EventListener.Factory() {
+                    @Override
+                    public EventListener create(Call call) {
+                        return new StatsListener();
+                    }
+                })
+                .build();
+    }
+
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return A snapshot of the connection usage since this stack was created.
+     */
+    public ConnectionStats getStats() {
+        ConnectionPool pool = client.connectionPool();
+        return new ConnectionStats(requests.get(), connectionsOpened.get(), connectionsReused.get(), connectionFailures.get(),
+                tlsHandshakes.get(), http2Connections.get(), pool.connectionCount(), pool.idleConnectionCount());
+    }
+
+    @Override
+    public HttpResponse executeRequest(Request<?> request, Map<String, String> additionalHeaders) throws IOException, AuthFailureError {
+        okhttp3.Request.Builder builder = new okhttp3.Request.Builder().url(request.getUrl());
+
+        for (Map.Entry<String, String> header : additionalHeaders.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        // the request's own headers take precedence over the cache headers
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+
+        setMethodAndBody(builder, request);
+
+        Response response = getClient(request.getTimeoutMs()).newCall(builder.build()).execute();
+        List<Header> headers = convertHeaders(response.headers());
+        ResponseBody body = response.body();
+        if (body == null) {
+            response.close();
+            return new HttpResponse(response.code(), headers);
+        }
+
+        long contentLength = body.contentLength();
+        return new HttpResponse(response.code(), headers, contentLength <= Integer.MAX_VALUE ? (int) contentLength : -1, new ResponseInputStream(response));
+    }
+
+    /**
+     * @return The client with the timeout of the request, which shares the connection pool with the others.
+     */
+    private OkHttpClient getClient(int timeoutMs) {
+        if (timeoutMs == client.readTimeoutMillis())
+            return client;
+
+        OkHttpClient result = clientsByTimeout.get(timeoutMs);
+        if (result == null) {
+            result = client.newBuilder()
+                    .connectTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                    .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                    .writeTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                    .build();
+            if (clientsByTimeout.size() < MAX_CACHED_CLIENTS)
+                clientsByTimeout.putIfAbsent(timeoutMs, result);
+        }
+
+        return result;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void setMethodAndBody(okhttp3.Request.Builder builder, Request<?> request) throws AuthFailureError {
+        switch (request.getMethod()) {
+            case Request.Method.DEPRECATED_GET_OR_POST:
+                byte[] postBody = request.getPostBody();
+                if (postBody != null) {
+                    builder.post(RequestBody.create(MediaType.parse(request.getPostBodyContentType()), postBody));
+                } else {
+                    builder.get();
+                }
+                break;
+            case Request.Method.GET:
+                builder.get();
+                break;
+            case Request.Method.DELETE:
+                builder.delete(createBody(request, false));
+                break;
+            case Request.Method.POST:
+                builder.post(createBody(request, true));
+                break;
+            case Request.Method.PUT:
+                builder.put(createBody(request, true));
+                break;
+            case Request.Method.PATCH:
+                builder.patch(createBody(request, true));
+                break;
+            case Request.Method.HEAD:
+                builder.head();
+                break;
+            case Request.Method.OPTIONS:
+                builder.method("OPTIONS", null);
+                break;
+            case Request.Method.TRACE:
+                builder.method("TRACE", null);
+                break;
+            default:
+                throw new IllegalStateException("Unknown method type.");
+        }
+    }
+
+    /**
+     * @param required Whether the method requires a body, in which case an empty one is sent if the request has none.
+     */
+    private static RequestBody createBody(final Request<?> request, boolean required) throws AuthFailureError {
+        final MediaType contentType = MediaType.parse(request.getBodyContentType());
+
+        if (request instanceof StreamingRequest && ((StreamingRequest) request).shouldStreamBody()) {
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return contentType;
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    ((StreamingRequest) request).writeBody(sink.outputStream());
+                }
+            };
+        }
+
+        byte[] body = request.getBody();
+        if (body == null)
+            return required ? RequestBody.create(contentType, new byte[0]) : null;
+
+        return RequestBody.create(contentType, body);
+    }
+
+    private static List<Header> convertHeaders(Headers responseHeaders) {
+        List<Header> headers = new ArrayList<>(responseHeaders.size());
+        for (int i = 0; i < responseHeaders.size(); i++) {
+            headers.add(new Header(responseHeaders.name(i), responseHeaders.value(i)));
+        }
+
+        return headers;
+    }
+
+    /**
+     * Collects the connection usage of a single call.
+     */
+    private class StatsListener extends EventListener {
+        private boolean connected = false;
+
+        @Override
+        public void callStart(Call call) {
+            requests.incrementAndGet();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            tlsHandshakes.incrementAndGet();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            connected = true;
+            connectionsOpened.incrementAndGet();
+            if (protocol == Protocol.HTTP_2)
+                http2Connections.incrementAndGet();
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+            connectionFailures.incrementAndGet();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            // a follow-up of the same call can acquire a pooled connection after opening one
+            if (!connected)
+                connectionsReused.incrementAndGet();
+            connected = false;
+        }
+    }
+
+    /**
+     * Input stream of the response body, which also releases the connection when it is closed.
+     */
+    private static class ResponseInputStream extends FilterInputStream {
+        private final Response response;
+
+        ResponseInputStream(Response response) {
+            super(response.body().byteStream());
+            this.response = response;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                response.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.rainy.networkhelper.network;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Request;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.HttpResponse;
+import com.rainy.networkhelper.request.BaseRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * A {@link BaseHttpStack} that lets {@link StreamingRequest}s consume the response
+ * body straight from the connection. Every other request (and every response that
+ * the request doesn't want to stream) is passed through the wrapped stack unchanged.
+ */
+public class StreamingHttpStack extends BaseHttpStack {
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private final BaseHttpStack stack;
+
+    public StreamingHttpStack() {
+        this(new ChunkedHurlStack());
+    }
+
+    public StreamingHttpStack(BaseHttpStack stack) {
+        this.stack = stack;
+    }
+
+    @Override
+    public HttpResponse executeRequest(Request<?> request, Map<String, String> additionalHeaders) throws IOException, AuthFailureError {
+        HttpResponse response = stack.executeRequest(request, additionalHeaders);
+        if (request instanceof BaseRequest)
+            ((BaseRequest<?>) request).getTimeline().markHeadersReceived();
+
+        if (!(request instanceof StreamingRequest) || response.getContent() == null)
+            return response;
+
+        StreamingRequest streamingRequest = (StreamingRequest) request;
+        if (!streamingRequest.shouldStreamResponse(response.getStatusCode()))
+            return response;
+
+        InputStream content = response.getContent();
+        try {
+            streamingRequest.consumeResponseStream(response.getStatusCode(), response.getHeaders(), content);
+        } finally {
+            content.close();
+        }
+
+        return new HttpResponse(response.getStatusCode(), response.getHeaders(), 0, new ByteArrayInputStream(EMPTY_BODY));
+    }
+}
@@ -0,0 +1,41 @@
+package com.rainy.networkhelper.network;
+
+import com.android.volley.Header;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * A request that can write its body straight into the connection, and consume
+ * its response body while it is being read from the connection. Used by
+ * {@link ChunkedHurlStack} and {@link StreamingHttpStack}.
+ */
+public interface StreamingRequest {
+    /**
+     * @return Whether the body should be written with {@link #writeBody(OutputStream)}
+     * using chunked transfer encoding, instead of sending the result of {@code getBody()}.
+     */
+    boolean shouldStreamBody();
+
+    /**
+     * Writes the body of the request into the given stream, which must not be closed.
+     */
+    void writeBody(OutputStream out) throws IOException;
+
+    /**
+     * @param statusCode The status code of the response.
+     * @return Whether the body of a response with the given status code should be passed to {@link #consumeResponseStream}.
+     */
+    boolean shouldStreamResponse(int statusCode);
+
+    /**
+     * Consumes the body of the response. This is called on the network thread,
+     * before {@code parseNetworkResponse}, which will then get an empty body.
+     *
+     * @throws IOException If reading from the connection failed. Other errors
+     *                     should be kept and reported by {@code parseNetworkResponse}.
+     */
+    void consumeResponseStream(int statusCode, List<Header> headers, InputStream content) throws IOException;
+}
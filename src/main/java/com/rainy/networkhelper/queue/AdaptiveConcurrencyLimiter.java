@@ -0,0 +1,323 @@
+package com.rainy.networkhelper.queue;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.VolleyError;
+import com.rainy.networkhelper.request.BaseRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.WeakHashMap;
+
+/**
+ * Limits the number of requests in flight per host on a {@link RequestQueue}, so a slow host
+ * can't occupy all of the network dispatchers. The requests over the limit wait in the queue
+ * of their host, and are added to the request queue when a request of the host finishes.
+ * <p>
+ * The limits adapt to the observed latency (AIMD): when a request finishes within twice the
+ * baseline latency of the host, the limit grows by one per limit's worth of requests, and when
+ * it is slower or fails, the limit is cut by a quarter. The baseline is the lowest latency seen,
+ * which slowly drifts up to the actual latency, so a host that got slower for good isn't
+ * throttled forever.
+ * <p>
+ * The latency is measured from the start to the end of the network dispatch, so the time spent
+ * in the delivery of the response (for example on a busy main thread) isn't counted.
+ * <p>
+ * The waiting requests are ordered by their priority, like in the request queue.
+ * <p>
+ * Once it is installed on a queue, the {@link BaseRequest}s sent to that queue go through it.
+ */
+public class AdaptiveConcurrencyLimiter implements RequestQueue.RequestEventListener {
+    private static final Map<RequestQueue, AdaptiveConcurrencyLimiter> limiters = new WeakHashMap<>();
+
+    private static final double BACKOFF_RATIO = 0.75;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BASELINE_DRIFT = 0.01;
+    private static final int DEFAULT_THREAD_POOL_SIZE = 4;
+    private static final int DEFAULT_INITIAL_LIMIT = 4;
+
+    private final RequestQueue queue;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final Map<String, Host> hosts = new HashMap<>();
+    private final Map<Request<?>, Admission> admitted = new IdentityHashMap<>();
+
+    public AdaptiveConcurrencyLimiter(RequestQueue queue, int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit)
+            throw new IllegalArgumentException("the limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+
+        this.queue = queue;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Installs a limiter with the default limits on the given queue, see {@link #install(RequestQueue, int)}.
+     * The number of network threads is taken from the {@link QueueConfig} of the queue if it is in
+     * the {@link RequestQueueRegistry}, otherwise it is Volley's default of 4.
+     */
+    public static AdaptiveConcurrencyLimiter install(RequestQueue queue) {
+        int threadPoolSize = RequestQueueRegistry.getThreadPoolSize(queue);
+        return install(queue, threadPoolSize > 0 ? threadPoolSize : DEFAULT_THREAD_POOL_SIZE);
+    }
+
+    /**
+     * Installs a limiter with the default limits on a queue with the given number of network
+     * threads. A host can have at most one less request in flight than the number of threads,
+     * so a slow host always leaves a thread to the others. The limits start at 4 (or the
+     * maximum, if it is lower) and can go down to 1.
+     */
+    public static AdaptiveConcurrencyLimiter install(RequestQueue queue, int threadPoolSize) {
+        int maxLimit = Math.max(1, threadPoolSize - 1);
+        return install(new AdaptiveConcurrencyLimiter(queue, Math.min(DEFAULT_INITIAL_LIMIT, maxLimit), 1, maxLimit));
+    }
+
+    /**
+     * Installs the given limiter on its queue, replacing the previous one.
+     */
+    public static AdaptiveConcurrencyLimiter install(AdaptiveConcurrencyLimiter limiter) {
+        synchronized (limiters) {
+            AdaptiveConcurrencyLimiter previous = limiters.put(limiter.queue, limiter);
+            if (previous != null)
+                limiter.queue.removeRequestEventListener(previous);
+        }
+
+        limiter.queue.addRequestEventListener(limiter);
+        return limiter;
+    }
+
+    /**
+     * @return The limiter installed on the given queue, or null if there is none.
+     */
+    public static AdaptiveConcurrencyLimiter forQueue(RequestQueue queue) {
+        synchronized (limiters) {
+            return limiters.get(queue);
+        }
+    }
+
+    /**
+     * Adds the request to the queue if its host is below its limit, otherwise it waits in the queue of its host.
+     */
+    public void add(Request<?> request) {
+        String hostName = getHost(request);
+        synchronized (this) {
+            Host host = getHostState(hostName);
+            if (host.inFlight >= (int) host.limit) {
+                host.waiting.add(request);
+                return;
+            }
+
+            admit(host, request);
+        }
+
+        queue.add(request);
+    }
+
+    /**
+     * Reorders the given request if it is waiting, after its priority has changed.
+     */
+    public void reprioritize(Request<?> request) {
+        String hostName = getHost(request);
+        synchronized (this) {
+            Host host = hosts.get(hostName);
+            if (host != null && host.waiting.remove(request))
+                host.waiting.add(request);
+        }
+    }
+
+    private void admit(Host host, Request<?> request) {
+        host.inFlight++;
+        admitted.put(request, new Admission(host));
+    }
+
+    @Override
+    public void onRequestEvent(Request<?> request, int event) {
+        if (event == RequestQueue.RequestEvent.REQUEST_NETWORK_DISPATCH_STARTED) {
+            synchronized (this) {
+                Admission admission = admitted.get(request);
+                if (admission != null) {
+                    admission.networkStartedAt = SystemClock.elapsedRealtime();
+                    admission.previousError = getNetworkError(request);
+                }
+            }
+        } else if (event == RequestQueue.RequestEvent.REQUEST_NETWORK_DISPATCH_FINISHED) {
+            sample(request);
+        } else if (event == RequestQueue.RequestEvent.REQUEST_FINISHED) {
+            release(request);
+        }
+    }
+
+    /**
+     * Adapts the limit of the request's host to the latency of its network dispatch.
+     */
+    private synchronized void sample(Request<?> request) {
+        Admission admission = admitted.get(request);
+        // the requests cancelled before the network don't tell anything about the host
+        if (admission == null || admission.networkStartedAt <= 0 || request.isCanceled())
+            return;
+
+        long latency = SystemClock.elapsedRealtime() - admission.networkStartedAt;
+        admission.networkStartedAt = 0;
+
+        // the error of an earlier attempt, that has been retried, doesn't count
+        VolleyError error = getNetworkError(request);
+        onSample(admission.host, latency, error != null && error != admission.previousError);
+    }
+
+    private static VolleyError getNetworkError(Request<?> request) {
+        return request instanceof BaseRequest ? ((BaseRequest<?>) request).getNetworkError() : null;
+    }
+
+    private void release(Request<?> request) {
+        List<Request<?>> next = new ArrayList<>();
+        synchronized (this) {
+            Admission admission = admitted.remove(request);
+            if (admission == null)
+                return;
+
+            Host host = admission.host;
+            host.inFlight--;
+
+            while (host.inFlight < (int) host.limit && !host.waiting.isEmpty()) {
+                Request<?> waiting = host.waiting.poll();
+                if (waiting.isCanceled())
+                    continue;
+
+                admit(host, waiting);
+                next.add(waiting);
+            }
+        }
+
+        for (Request<?> waiting : next)
+            queue.add(waiting);
+    }
+
+    private void onSample(Host host, long latency, boolean failed) {
+        if (host.baselineLatency < 0 || latency < host.baselineLatency) {
+            host.baselineLatency = latency;
+        } else {
+            host.baselineLatency += (latency - host.baselineLatency) * BASELINE_DRIFT;
+        }
+
+        if (failed || latency > host.baselineLatency * LATENCY_TOLERANCE) {
+            host.limit = Math.max(minLimit, host.limit * BACKOFF_RATIO);
+        } else if (host.inFlight >= host.limit / 2) {
+            // only grow the limit if it is actually used
+            host.limit = Math.min(maxLimit, host.limit + 1 / host.limit);
+        }
+    }
+
+    private Host getHostState(String name) {
+        Host host = hosts.get(name);
+        if (host == null) {
+            host = new Host(name, initialLimit);
+            hosts.put(name, host);
+        }
+
+        return host;
+    }
+
+    private static String getHost(Request<?> request) {
+        String url = request.getUrl();
+        String host = url != null ? Uri.parse(url).getHost() : null;
+        return host != null ? host : "";
+    }
+
+    /**
+     * @return The current state of each host that has been seen.
+     */
+    public synchronized List<HostStats> getStats() {
+        List<HostStats> stats = new ArrayList<>(hosts.size());
+        for (Host host : hosts.values())
+            stats.add(new HostStats(host.name, (int) host.limit, host.inFlight, host.waiting.size(), (long) host.baselineLatency));
+
+        return stats;
+    }
+
+    public RequestQueue getQueue() {
+        return queue;
+    }
+
+    private static class Host {
+        final String name;
+        final Queue<Request<?>> waiting = new PriorityQueue<>();
+        double limit;
+        int inFlight = 0;
+        double baselineLatency = -1;
+
+        Host(String name, int limit) {
+            this.name = name;
+            this.limit = limit;
+        }
+    }
+
+    private static class Admission {
+        final Host host;
+        long networkStartedAt = 0;
+        VolleyError previousError;
+
+        Admission(Host host) {
+            this.host = host;
+        }
+    }
+
+    /**
+     * Snapshot of the state of a host.
+     */
+    public static final class HostStats {
+        private final String host;
+        private final int limit;
+        private final int inFlight;
+        private final int queueDepth;
+        private final long baselineLatencyMs;
+
+        HostStats(String host, int limit, int inFlight, int queueDepth, long baselineLatencyMs) {
+            this.host = host;
+            this.limit = limit;
+            this.inFlight = inFlight;
+            this.queueDepth = queueDepth;
+            this.baselineLatencyMs = baselineLatencyMs;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        /**
+         * @return The number of requests waiting for the host to get below its limit.
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        /**
+         * @return The baseline latency of the host, or -1 if no request has finished yet.
+         */
+        public long getBaselineLatencyMs() {
+            return baselineLatencyMs;
+        }
+
+        @Override
+        public String toString() {
+            return "HostStats{host=" + host + ", limit=" + limit + ", inFlight=" + inFlight + ", queueDepth=" + queueDepth + ", baselineLatencyMs=" + baselineLatencyMs + "}";
+        }
+    }
+}
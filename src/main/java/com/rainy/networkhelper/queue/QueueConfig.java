@@ -0,0 +1,141 @@
+package com.rainy.networkhelper.queue;
+
+import android.content.Context;
+
+import com.android.volley.Cache;
+import com.android.volley.RequestQueue;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.DiskBasedCache;
+import com.rainy.networkhelper.delivery.DeliveryExecutors;
+import com.rainy.networkhelper.delivery.SwitchingResponseDelivery;
+import com.rainy.networkhelper.network.ChunkedHurlStack;
+import com.rainy.networkhelper.network.CompressionHttpStack;
+import com.rainy.networkhelper.network.StreamingHttpStack;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+
+/**
+ * The configuration of a request queue: the number of its network dispatcher threads, its cache,
+ * its transport and the executor its responses are delivered with. The named queues of the
+ * {@link RequestQueueRegistry} are only created from it when they are first used.
+ */
+public class QueueConfig {
+    /**
+     * The size of the disk cache, when no cache is set. It is the same as Volley's default.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 5 * 1024 * 1024;
+
+    private int threadPoolSize = 4;
+    private Cache cache;
+    private int cacheSize = DEFAULT_CACHE_SIZE;
+    private BaseHttpStack httpStack;
+    private Executor deliveryExecutor = DeliveryExecutors.mainThread();
+
+    public int getThreadPoolSize() {
+        return threadPoolSize;
+    }
+
+    /**
+     * Sets the number of network dispatcher threads of the queue. The default is 4, like Volley's.
+     */
+    public QueueConfig setThreadPoolSize(int threadPoolSize) {
+        if (threadPoolSize < 1)
+            throw new IllegalArgumentException("threadPoolSize must be at least 1");
+
+        this.threadPoolSize = threadPoolSize;
+        return this;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets the cache of the queue. By default every queue gets its own disk cache in the
+     * cache directory of the app, named after the queue. Use a {@code NoCache} for traffic
+     * that shouldn't be cached at all.
+     */
+    public QueueConfig setCache(Cache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Sets the size of the default disk cache in bytes. It is ignored if a cache is set.
+     */
+    public QueueConfig setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
+    public BaseHttpStack getHttpStack() {
+        return httpStack;
+    }
+
+    /**
+     * Sets the transport of the queue. By default it is the same as the one of the default queue.
+     */
+    public QueueConfig setHttpStack(BaseHttpStack httpStack) {
+        this.httpStack = httpStack;
+        return this;
+    }
+
+    public Executor getDeliveryExecutor() {
+        return deliveryExecutor;
+    }
+
+    /**
+     * Sets the executor that the responses of the queue are delivered with, unless a request
+     * sets its own. By default they are delivered on the main thread, see {@link DeliveryExecutors}.
+     */
+    public QueueConfig setDeliveryExecutor(Executor deliveryExecutor) {
+        if (deliveryExecutor == null)
+            throw new IllegalArgumentException("deliveryExecutor can't be null");
+
+        this.deliveryExecutor = deliveryExecutor;
+        return this;
+    }
+
+    /**
+     * Creates and starts a queue with this configuration.
+     *
+     * @param cacheDirName The name of the directory of the default disk cache, in the cache directory of the app.
+     */
+    public RequestQueue newQueue(Context context, final String cacheDirName) {
+        Cache cache = this.cache;
+        if (cache == null) {
+            final Context appContext = context.getApplicationContext();
+            // the cache directory is only looked up on the cache thread, like in Volley.newRequestQueue()
+            cache = new DiskBasedCache(new DiskBasedCache.FileSupplier() {
+                private File cacheDir;
+
+                @Override
+                public File get() {
+                    if (cacheDir == null)
+                        cacheDir = new File(appContext.getCacheDir(), cacheDirName);
+
+                    return cacheDir;
+                }
+            }, cacheSize);
+        }
+
+        BaseHttpStack httpStack = this.httpStack != null ? this.httpStack : newDefaultHttpStack();
+
+        RequestQueue queue = new RequestQueue(cache, new BasicNetwork(httpStack), threadPoolSize, new SwitchingResponseDelivery(deliveryExecutor));
+        queue.start();
+        return queue;
+    }
+
+    /**
+     * @return A new instance of the transport that the queues use by default.
+     */
+    public static BaseHttpStack newDefaultHttpStack() {
+        return new StreamingHttpStack(new CompressionHttpStack(new ChunkedHurlStack()));
+    }
+}
@@ -0,0 +1,72 @@
+package com.rainy.networkhelper.queue;
+
+import java.util.Locale;
+
+/**
+ * A snapshot of the load of a named queue of the {@link RequestQueueRegistry}.
+ */
+public final class QueueStats {
+    private final String name;
+    private final int threadPoolSize;
+    private final int pending;
+    private final int active;
+    private final long completed;
+    private final double utilization;
+
+    QueueStats(String name, int threadPoolSize, int pending, int active, long completed, double utilization) {
+        this.name = name;
+        this.threadPoolSize = threadPoolSize;
+        this.pending = pending;
+        this.active = active;
+        this.completed = completed;
+        this.utilization = utilization;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreadPoolSize() {
+        return threadPoolSize;
+    }
+
+    /**
+     * @return The number of requests that have been added to the queue and haven't finished yet,
+     * including the active ones.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * @return The number of requests that are being executed by a network dispatcher right now.
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * @return The number of requests that are waiting for a network dispatcher (or the cache).
+     */
+    public int getDepth() {
+        return Math.max(0, pending - active);
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return The ratio of the time the network dispatchers were busy since the queue was
+     * started, between 0 and 1.
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: %d threads, %d active, %d waiting, %d completed, %.1f%% utilization",
+                name, threadPoolSize, active, getDepth(), completed, utilization * 100);
+    }
+}
@@ -0,0 +1,185 @@
+package com.rainy.networkhelper.queue;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A registry of named request queues, so different classes of traffic (for example
+ * "interactive", "bulk" and "prefetch") don't compete for the same network dispatchers.
+ * Every queue has its own dispatcher threads, cache, transport and delivery, see {@link QueueConfig}.
+ * <p>
+ * The queues are registered up front, and each one is created and started when it is first
+ * used. A request can be sent to a named queue with the
+ * {@link com.rainy.networkhelper.annotation.QueueName} annotation, or with
+ * {@code send(context, queueName)}.
+ */
+public class RequestQueueRegistry {
+    private static final Map<String, Registration> registrations = new HashMap<>();
+
+    private RequestQueueRegistry() {
+    }
+
+    /**
+     * Registers a queue with the given name and configuration. The configuration of a queue
+     * can be replaced until it is first used.
+     *
+     * @throws IllegalStateException If a queue with the same name has already been started,
+     *                               because its requests would be stranded if it was stopped.
+     */
+    public static void register(String name, QueueConfig config) {
+        synchronized (registrations) {
+            Registration previous = registrations.get(name);
+            if (previous != null && previous.queue != null)
+                throw new IllegalStateException("the request queue " + name + " has already been started");
+
+            registrations.put(name, new Registration(name, config));
+        }
+    }
+
+    /**
+     * @return True if a queue with the given name has been registered.
+     */
+    public static boolean isRegistered(String name) {
+        synchronized (registrations) {
+            return registrations.containsKey(name);
+        }
+    }
+
+    /**
+     * @return The configuration of the queue with the given name, or null if it hasn't been registered.
+     */
+    public static QueueConfig getConfig(String name) {
+        synchronized (registrations) {
+            Registration registration = registrations.get(name);
+            return registration != null ? registration.config : null;
+        }
+    }
+
+    /**
+     * @return The queue with the given name, which is created and started on the first call.
+     * @throws IllegalArgumentException If no queue has been registered with the name.
+     */
+    public static RequestQueue getQueue(Context context, String name) {
+        synchronized (registrations) {
+            Registration registration = getRegistration(name);
+            if (registration.queue == null)
+                registration.start(context.getApplicationContext());
+
+            return registration.queue;
+        }
+    }
+
+    /**
+     * @return The load of the queue with the given name. If it hasn't been used yet, everything is zero.
+     * @throws IllegalArgumentException If no queue has been registered with the name.
+     */
+    public static QueueStats getStats(String name) {
+        synchronized (registrations) {
+            return getRegistration(name).getStats();
+        }
+    }
+
+    /**
+     * @return The load of every registered queue, by their names.
+     */
+    public static Map<String, QueueStats> getStats() {
+        Map<String, QueueStats> stats = new HashMap<>();
+        synchronized (registrations) {
+            for (Registration registration : registrations.values())
+                stats.put(registration.name, registration.getStats());
+        }
+
+        return stats;
+    }
+
+    /**
+     * @return The number of network threads of the given queue, or -1 if it isn't in the registry.
+     */
+    static int getThreadPoolSize(RequestQueue queue) {
+        synchronized (registrations) {
+            for (Registration registration : registrations.values()) {
+                if (registration.queue == queue)
+                    return registration.config.getThreadPoolSize();
+            }
+        }
+
+        return -1;
+    }
+
+    private static Registration getRegistration(String name) {
+        Registration registration = registrations.get(name);
+        if (registration == null)
+            throw new IllegalArgumentException("no request queue has been registered with the name " + name);
+
+        return registration;
+    }
+
+    private static class Registration implements RequestQueue.RequestEventListener {
+        final String name;
+        final QueueConfig config;
+        RequestQueue queue;
+
+        private final ConcurrentMap<Request<?>, Long> dispatchedAt = new ConcurrentHashMap<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong busyTime = new AtomicLong();
+        private long startedAt;
+
+        Registration(String name, QueueConfig config) {
+            this.name = name;
+            this.config = config;
+        }
+
+        void start(Context context) {
+            queue = config.newQueue(context, "volley-" + name);
+            queue.addRequestEventListener(this);
+            startedAt = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void onRequestEvent(Request<?> request, int event) {
+            switch (event) {
+                case RequestQueue.RequestEvent.REQUEST_QUEUED:
+                    pending.incrementAndGet();
+                    break;
+                case RequestQueue.RequestEvent.REQUEST_NETWORK_DISPATCH_STARTED:
+                    dispatchedAt.put(request, SystemClock.elapsedRealtime());
+                    break;
+                case RequestQueue.RequestEvent.REQUEST_NETWORK_DISPATCH_FINISHED:
+                    Long start = dispatchedAt.remove(request);
+                    if (start != null)
+                        busyTime.addAndGet(SystemClock.elapsedRealtime() - start);
+                    break;
+                case RequestQueue.RequestEvent.REQUEST_FINISHED:
+                    pending.decrementAndGet();
+                    completed.incrementAndGet();
+                    break;
+            }
+        }
+
+        QueueStats getStats() {
+            if (queue == null)
+                return new QueueStats(name, config.getThreadPoolSize(), 0, 0, 0, 0);
+
+            long now = SystemClock.elapsedRealtime();
+            long busy = busyTime.get();
+            for (Long start : dispatchedAt.values())
+                busy += now - start;
+
+            long capacity = (now - startedAt) * config.getThreadPoolSize();
+            double utilization = capacity > 0 ? Math.min(1.0, (double) busy / capacity) : 0;
+
+            return new QueueStats(name, config.getThreadPoolSize(), Math.max(0, pending.get()), dispatchedAt.size(), completed.get(), utilization);
+        }
+    }
+}
@@ -3,24 +3,52 @@ package com.rainy.networkhelper.request;
 import android.content.Context;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
+import android.net.Uri;
 
 import com.android.volley.AuthFailureError;
+import com.android.volley.Cache;
+import com.android.volley.ClientError;
+import com.android.volley.Header;
 import com.android.volley.NetworkResponse;
 import com.android.volley.NoConnectionError;
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.Response;
+import com.android.volley.ResponseDelivery;
+import com.android.volley.RetryPolicy;
+import com.android.volley.ServerError;
 import com.android.volley.VolleyError;
-import com.android.volley.toolbox.Volley;
-import com.rainy.networkhelper.annotation.ExpectedStatusCode;
-import com.rainy.networkhelper.annotation.QueryConstantParam;
-import com.rainy.networkhelper.annotation.QueryConstantParams;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.rainy.networkhelper.annotation.Batchable;
+import com.rainy.networkhelper.annotation.CachePolicy;
+import com.rainy.networkhelper.annotation.QueueName;
 import com.rainy.networkhelper.annotation.RequestMethod;
+import com.rainy.networkhelper.annotation.Retry;
+import com.rainy.networkhelper.batch.BatchPartResponse;
+import com.rainy.networkhelper.delivery.DeliveryExecutors;
+import com.rainy.networkhelper.delivery.SwitchingResponseDelivery;
+import com.rainy.networkhelper.exception.CircuitOpenError;
 import com.rainy.networkhelper.future.AsyncRequestFuture;
-import com.rainy.networkhelper.util.ReflectionUtil;
+import com.rainy.networkhelper.metrics.RequestMetrics;
+import com.rainy.networkhelper.metrics.RequestMetricsListener;
+import com.rainy.networkhelper.metrics.RequestTimeline;
+import com.rainy.networkhelper.queue.AdaptiveConcurrencyLimiter;
+import com.rainy.networkhelper.queue.QueueConfig;
+import com.rainy.networkhelper.queue.RequestQueueRegistry;
+import com.rainy.networkhelper.retry.BackoffRetryPolicy;
+import com.rainy.networkhelper.retry.CircuitBreaker;
+import com.rainy.networkhelper.util.PriorityAging;
+import com.rainy.networkhelper.util.UrlTemplate;
 
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
 
 public abstract class BaseRequest<T> extends Request<T> {
     public final String HEADER_CONTENT_TYPE = "Content-Type";
@@ -36,6 +64,24 @@ public abstract class BaseRequest<T> extends Request<T> {
 
     private Integer method = null;
     private String url;
+    private RequestDescriptor descriptor;
+    private UrlTemplate urlTemplate;
+    private volatile ExpandedUrl expandedUrl;
+    private boolean coalesce = false;
+    private volatile RequestCoalescer.Call coalescedCall;
+    private CachePolicy cachePolicy;
+    private volatile boolean skipDelivery = false;
+    private volatile boolean intermediateResponse = false;
+    private volatile Response<T> staleResponse;
+    private volatile boolean parsingStaleResponse;
+    private volatile CircuitBreaker circuitBreaker;
+    private volatile VolleyError networkError;
+    private volatile Priority priority;
+    private volatile long enqueuedAt = 0;
+    private RequestQueue sentQueue;
+    private String queueName;
+    private volatile Executor deliveryExecutor;
+    private final RequestTimeline timeline = new RequestTimeline();
 
     /**
      * Constructor for creating a new request that is meant to
@@ -63,16 +109,18 @@ public abstract class BaseRequest<T> extends Request<T> {
     public BaseRequest(int httpMethod, String url, Response.Listener<T> listener, Response.ErrorListener errorListener) {
         super(httpMethod, url, errorListener);
         this.listener = listener;
+        fetchClassAnnotations();
     }
 
     public BaseRequest(int httpMethod, String url, Map<String, String> headers, Response.Listener<T> listener, Response.ErrorListener errorListener) {
         super(httpMethod, url, errorListener);
         this.listener = listener;
         this.headers = headers;
+        fetchClassAnnotations();
     }
 
     private void fetchAnnotations() {
-        RequestMethod requestMethod = (RequestMethod) ReflectionUtil.getClassAnnotation(getClass(), RequestMethod.class);
+        RequestMethod requestMethod = getDescriptor().getRequestMethod();
         if (requestMethod == null)
             throw new IllegalArgumentException("This class must be annotated with RequestMethod annotation when using this constructor.");
 
@@ -82,25 +130,184 @@ public abstract class BaseRequest<T> extends Request<T> {
         this.method = requestMethod.method();
         this.url = requestMethod.url();
 
-        QueryConstantParam queryConstantParam = (QueryConstantParam) ReflectionUtil.getClassAnnotation(getClass(), QueryConstantParam.class);
-        if (queryConstantParam != null) {
-            queryParams.put(queryConstantParam.name(), queryConstantParam.value());
-        }
-
-        QueryConstantParams queryConstantParams = (QueryConstantParams) ReflectionUtil.getClassAnnotation(getClass(), QueryConstantParams.class);
-        if (queryConstantParams != null) {
-            for (QueryConstantParam queryConstantParam1 : queryConstantParams.value())
-                queryParams.put(queryConstantParam1.name(), queryConstantParam1.value());
-        }
+        queryParams.putAll(getDescriptor().getConstantQueryParams());
 
-        ExpectedStatusCode expectedStatusCode = (ExpectedStatusCode) ReflectionUtil.getClassAnnotation(getClass(), ExpectedStatusCode.class);
+        int[] expectedStatusCode = getDescriptor().getExpectedStatusCodes();
         if (expectedStatusCode != null) {
-            this.expectedStatusCode = expectedStatusCode.values();
+            this.expectedStatusCode = expectedStatusCode;
             for (int code : this.expectedStatusCode) {
                 if (code < 200 || code > 299)
                     throw new IllegalArgumentException("expected status codes must be in 200-299 range");
             }
         }
+
+        fetchClassAnnotations();
+    }
+
+    /**
+     * Reads the annotations that don't depend on {@link RequestMethod}, so they are
+     * applied whichever constructor is used.
+     */
+    private void fetchClassAnnotations() {
+        this.cachePolicy = getDescriptor().getCachePolicy();
+        if (cachePolicy != null && (cachePolicy.ttl() < 0 || cachePolicy.softTtl() > cachePolicy.ttl() || cachePolicy.staleIfError() < 0))
+            throw new IllegalArgumentException("the CachePolicy's values can't be negative, and its soft ttl can't be longer than its ttl");
+
+        com.rainy.networkhelper.annotation.Priority priority = getDescriptor().getPriority();
+        if (priority != null)
+            this.priority = priority.value();
+
+        QueueName queueName = getDescriptor().getQueueName();
+        if (queueName != null)
+            this.queueName = queueName.value();
+
+        Retry retry = getDescriptor().getRetry();
+        if (retry != null) {
+            setRetryPolicy(new BackoffRetryPolicy(retry.maxAttempts(), retry.baseDelayMs(), retry.maxDelayMs(), retry.timeoutMs(), retry.retryOn()));
+            // Volley only hands the 5xx and the connection errors to the retry policy when it is asked to
+            setShouldRetryServerErrors(isRetried(retry, ServerError.class));
+            setShouldRetryConnectionErrors(isRetried(retry, NoConnectionError.class));
+        }
+    }
+
+    private static boolean isRetried(Retry retry, Class<? extends VolleyError> error) {
+        for (Class<? extends VolleyError> type : retry.retryOn()) {
+            if (type.isAssignableFrom(error))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return The {@link CachePolicy} of this request's class, or null if it has none.
+     */
+    public CachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * Parses the cache headers of the given response, and applies the {@link CachePolicy}
+     * of this request to them. Subclasses should call this from {@link #parseNetworkResponse}
+     * instead of {@link HttpHeaderParser#parseCacheHeaders(NetworkResponse)}.
+     * <p>
+     * If the response is the background refresh of a cached response that has already
+     * been delivered, and its body hasn't changed, it won't be delivered again.
+     *
+     * @param response The network response.
+     * @return The cache entry of the response, or null if it shouldn't be cached.
+     */
+    protected Cache.Entry parseCacheEntry(NetworkResponse response) {
+        Cache.Entry entry = HttpHeaderParser.parseCacheHeaders(response);
+        if (cachePolicy == null)
+            return entry;
+
+        long now = System.currentTimeMillis();
+        if (entry == null || entry.ttl <= now || cachePolicy.override()) {
+            if (entry == null) {
+                if (!cachePolicy.override())
+                    return null;
+
+                entry = new Cache.Entry();
+                entry.data = response.data;
+                entry.responseHeaders = response.headers;
+                entry.allResponseHeaders = response.allHeaders;
+                if (response.headers != null) {
+                    entry.etag = response.headers.get("ETag");
+                    entry.serverDate = HttpHeaderParser.parseDateAsEpoch(response.headers.get("Date"));
+                    entry.lastModified = HttpHeaderParser.parseDateAsEpoch(response.headers.get("Last-Modified"));
+                }
+            }
+
+            int softTtl = cachePolicy.softTtl() >= 0 ? cachePolicy.softTtl() : cachePolicy.ttl();
+            entry.softTtl = now + softTtl * 1000L;
+            entry.ttl = now + cachePolicy.ttl() * 1000L;
+        }
+
+        if (isUnchangedRefresh(response))
+            skipDelivery = true;
+
+        return entry;
+    }
+
+    /**
+     * Checks whether the given response is the refresh of a cached response that has
+     * already been delivered (see {@link Response#intermediate}), with the same body.
+     */
+    protected boolean isUnchangedRefresh(NetworkResponse response) {
+        Cache.Entry cached = getCacheEntry();
+        return hasHadResponseDelivered() && cached != null && (response.notModified || Arrays.equals(cached.data, response.data));
+    }
+
+    /**
+     * If the {@link CachePolicy} allows it, parses the expired cached response on the network
+     * thread, so it can be delivered instead of the error. Like stale-if-error (RFC 5861), it
+     * is only done for server errors and failed network calls, not for 4xx errors.
+     */
+    @Override
+    protected VolleyError parseNetworkError(VolleyError volleyError) {
+        staleResponse = null;
+        networkError = volleyError;
+
+        // Volley throws the 4xx errors without asking the retry policy
+        BackoffRetryPolicy backoff = getBackoffRetryPolicy();
+        if (backoff != null && volleyError instanceof ClientError && backoff.getPendingRetryDelay() < 0) {
+            try {
+                backoff.retry(volleyError);
+            } catch (VolleyError e) {
+                // the pending retry delay tells whether it is retried
+            }
+        }
+
+        // the attempt is retried later, see deliverError()
+        if (backoff != null && backoff.getPendingRetryDelay() >= 0)
+            return super.parseNetworkError(volleyError);
+
+        CircuitBreaker breaker = circuitBreaker;
+        if (breaker != null)
+            breaker.onError(volleyError);
+
+        Cache.Entry cached = getCacheEntry();
+        boolean serverError = volleyError.networkResponse == null || volleyError.networkResponse.statusCode >= 500;
+        if (cachePolicy != null && cachePolicy.staleIfError() > 0 && serverError && cached != null && cached.data != null
+                && System.currentTimeMillis() <= cached.ttl + cachePolicy.staleIfError() * 1000L) {
+            List<Header> headers = cached.allResponseHeaders != null ? cached.allResponseHeaders : toHeaderList(cached.responseHeaders);
+            Response<T> response;
+            parsingStaleResponse = true;
+            try {
+                response = parseNetworkResponse(new NetworkResponse(HttpURLConnection.HTTP_OK, cached.data, false, 0, headers));
+            } finally {
+                parsingStaleResponse = false;
+            }
+            if (response != null && response.isSuccess())
+                staleResponse = response;
+        }
+
+        return super.parseNetworkError(volleyError);
+    }
+
+    /**
+     * @return The given headers as a list, for the responses that are made from a map of headers.
+     */
+    static List<Header> toHeaderList(Map<String, String> headers) {
+        if (headers == null)
+            return Collections.emptyList();
+
+        List<Header> list = new ArrayList<>(headers.size());
+        for (Map.Entry<String, String> header : headers.entrySet())
+            list.add(new Header(header.getKey(), header.getValue()));
+
+        return list;
+    }
+
+    /**
+     * @return The cached descriptor of this request's class.
+     */
+    RequestDescriptor getDescriptor() {
+        if (descriptor == null)
+            descriptor = RequestDescriptor.forClass(getClass());
+
+        return descriptor;
     }
 
     @Override
@@ -108,21 +315,323 @@ public abstract class BaseRequest<T> extends Request<T> {
         return null;
     }
 
+    /**
+     * Sends the request to its named queue (see {@link #setQueueName}), or to the default queue if it has none.
+     */
     public void send(Context context) {
-        if (queue == null) {
-            queue = Volley.newRequestQueue(context.getApplicationContext());
-        }
+        send(context, queueName != null ? RequestQueueRegistry.getQueue(context, queueName) : getQueue(context));
+    }
 
-        send(context, queue);
+    /**
+     * Sends the request to the queue of the {@link RequestQueueRegistry} with the given name.
+     */
+    public void send(Context context, String queueName) {
+        send(context, RequestQueueRegistry.getQueue(context, queueName));
     }
 
     public void send(Context context, RequestQueue requestQueue) {
+        timeline.markEnqueued();
+        enqueuedAt = PriorityAging.now();
+        sentQueue = requestQueue;
+
         if (!isConnectionAvailable(context, connectionType)) {
             deliverError(new NoConnectionError());
             return;
         }
 
-        requestQueue.add(this);
+        if (deliverCachedResponse())
+            return;
+
+        if (!checkCircuitBreaker())
+            return;
+
+        if (coalesce && getMethod() == Method.GET) {
+            String key = getCoalescingKey();
+            if (key != null && RequestCoalescer.attach(this, key))
+                return;
+        }
+
+        Batchable batchable = getDescriptor().getBatchable();
+        if (batchable != null) {
+            BatchDispatcher.forQueue(requestQueue).add(this, batchable);
+            return;
+        }
+
+        addToQueue(requestQueue, this);
+    }
+
+    /**
+     * Adds the request to the queue, through its {@link AdaptiveConcurrencyLimiter} if it has one.
+     */
+    static void addToQueue(RequestQueue queue, Request<?> request) {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.forQueue(queue);
+        if (limiter != null)
+            limiter.add(request);
+        else
+            queue.add(request);
+    }
+
+    @Override
+    public Priority getPriority() {
+        return priority != null ? priority : super.getPriority();
+    }
+
+    /**
+     * Sets the priority of this request, overriding the {@link com.rainy.networkhelper.annotation.Priority}
+     * annotation. It can also be called after the request has been sent: the requests waiting in an
+     * {@link AdaptiveConcurrencyLimiter} are reordered right away, but in Volley's queue the new
+     * priority is only taken into account when the queue reorders its requests, so it is best-effort.
+     */
+    public BaseRequest<T> setPriority(Priority priority) {
+        this.priority = priority;
+
+        RequestQueue queue = sentQueue;
+        AdaptiveConcurrencyLimiter limiter = queue != null ? AdaptiveConcurrencyLimiter.forQueue(queue) : null;
+        if (limiter != null)
+            limiter.reprioritize(this);
+
+        return this;
+    }
+
+    /**
+     * @return The sort key of this request, see {@link PriorityAging}.
+     */
+    long getSortKey() {
+        if (enqueuedAt == 0)
+            enqueuedAt = PriorityAging.now();
+
+        return PriorityAging.sortKey(getPriority(), enqueuedAt);
+    }
+
+    /**
+     * Orders the requests by their priority, aging the lower priorities upward while they
+     * wait, and then by their sequence number.
+     */
+    @Override
+    public int compareTo(Request<T> other) {
+        if (!(other instanceof BaseRequest))
+            return super.compareTo(other);
+
+        long key = getSortKey();
+        long otherKey = ((BaseRequest<T>) other).getSortKey();
+        if (key != otherKey)
+            return key < otherKey ? -1 : 1;
+
+        return super.compareTo(other);
+    }
+
+    /**
+     * Checks the circuit breaker of the host if the request is annotated with {@link Retry},
+     * and delivers a {@link CircuitOpenError} if the breaker doesn't let the request through.
+     *
+     * @return True if the request can be sent.
+     */
+    private boolean checkCircuitBreaker() {
+        Retry retry = getDescriptor().getRetry();
+        if (retry == null || !retry.circuitBreaker())
+            return true;
+
+        String host = Uri.parse(getUrl()).getHost();
+        if (host == null)
+            return true;
+
+        CircuitBreaker breaker = CircuitBreaker.forHost(host);
+        if (!breaker.allowRequest()) {
+            deliverError(new CircuitOpenError(host));
+            return false;
+        }
+
+        circuitBreaker = breaker;
+        BackoffRetryPolicy backoff = getBackoffRetryPolicy();
+        if (backoff != null)
+            backoff.setCircuitBreaker(breaker);
+
+        return true;
+    }
+
+    private BackoffRetryPolicy getBackoffRetryPolicy() {
+        RetryPolicy policy = getRetryPolicy();
+        return policy instanceof BackoffRetryPolicy ? (BackoffRetryPolicy) policy : null;
+    }
+
+    /**
+     * Records the phases of the request in its timeline from Volley's markers,
+     * and reports the successful network responses to the circuit breaker of the host.
+     */
+    @Override
+    public void addMarker(String tag) {
+        super.addMarker(tag);
+
+        switch (tag) {
+            case "add-to-queue":
+                timeline.markQueued();
+                break;
+            case "cache-queue-take":
+                timeline.markCacheStarted();
+                break;
+            case "cache-hit":
+                timeline.markCacheFinished(true);
+                break;
+            case "cache-miss":
+            case "cache-hit-expired":
+                timeline.markCacheFinished(false);
+                break;
+            case "cache-hit-refresh-needed":
+                // the cached response that is delivered next is an intermediate one
+                intermediateResponse = true;
+                break;
+            case "network-queue-take":
+                timeline.markNetworkStarted();
+                break;
+            case "network-http-complete":
+                timeline.markNetworkFinished();
+                CircuitBreaker breaker = circuitBreaker;
+                if (breaker != null)
+                    breaker.onSuccess();
+                break;
+            case "post-response":
+            case "post-error":
+                timeline.markPosted();
+                break;
+        }
+    }
+
+    /**
+     * @return The timestamps of the phases of this request.
+     */
+    public RequestTimeline getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * Publishes the metrics of this request to the {@link RequestMetricsListener}s, if there are any.
+     */
+    private void publishMetrics(VolleyError error) {
+        if (RequestMetricsListener.Registry.isEmpty())
+            return;
+
+        UrlTemplate template = getUrlTemplate();
+        String endpoint = template != null ? template.getTemplate() : getUrl();
+        RequestMetricsListener.Registry.publish(new RequestMetrics(endpoint, getMethod(), error, timeline));
+    }
+
+    /**
+     * Parses this request's part of a batch response, on the network thread.
+     */
+    Response<T> parseBatchPart(BatchPartResponse part, long networkTimeMs) {
+        NetworkResponse response = new NetworkResponse(part.getStatusCode(), part.getBody(), false, networkTimeMs, toHeaderList(part.getHeaders()));
+        int statusCode = part.getStatusCode();
+        if (statusCode >= 200 && statusCode <= 299)
+            return parseNetworkResponse(response);
+
+        VolleyError error;
+        if (statusCode == 401 || statusCode == 403) {
+            error = new AuthFailureError(response);
+        } else if (statusCode >= 400 && statusCode <= 499) {
+            error = new ClientError(response);
+        } else {
+            error = new ServerError(response);
+        }
+
+        return Response.error(parseNetworkError(error));
+    }
+
+    /**
+     * Delivers this request's part of a batch response.
+     */
+    @SuppressWarnings("unchecked")
+    void deliverBatchResult(Response<?> response) {
+        if (isCanceled())
+            return;
+
+        if (response.isSuccess())
+            deliverResponse((T) response.result);
+        else
+            deliverError(response.error);
+    }
+
+    /**
+     * Called when the request is sent, before it is added to the queue. Subclasses that keep
+     * their responses in memory can deliver one here, so the request doesn't go to the queue.
+     *
+     * @return True if a response has been (or will be) delivered, so the request must not be sent.
+     */
+    protected boolean deliverCachedResponse() {
+        return false;
+    }
+
+    public boolean isCoalesce() {
+        return coalesce;
+    }
+
+    /**
+     * Sets whether this request should be coalesced with the identical GET requests that
+     * are in flight when it is sent. If there is one, this request is not sent, but it gets
+     * the same response (or error) as the one in flight, so the response is downloaded and
+     * parsed only once. Cancelling a coalesced request only cancels the network call if no
+     * other request is waiting for it.
+     */
+    public BaseRequest<T> setCoalesce(boolean coalesce) {
+        this.coalesce = coalesce;
+        return this;
+    }
+
+    /**
+     * Returns the key of this request for coalescing: two requests with the same key are
+     * considered identical. By default it is made of the class, the method, the URL and the headers.
+     *
+     * @return The key, or null if this request should not be coalesced.
+     */
+    protected String getCoalescingKey() {
+        Map<String, String> headers;
+        try {
+            headers = getHeaders();
+        } catch (AuthFailureError e) {
+            return null;
+        }
+
+        StringBuilder key = new StringBuilder(getClass().getName()).append(' ').append(getMethod()).append(' ').append(getUrl());
+        if (headers != null) {
+            for (Map.Entry<String, String> header : new TreeMap<>(headers).entrySet())
+                key.append('\n').append(header.getKey()).append(": ").append(header.getValue());
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Detaches the coalesced requests if this request is their leader, and won't deliver
+     * anything more: they have already received its intermediate response.
+     */
+    private void finishCoalescedCall() {
+        RequestCoalescer.Call call = coalescedCall;
+        if (call != null && call.leader == this)
+            RequestCoalescer.finish(call);
+    }
+
+    RequestCoalescer.Call getCoalescedCall() {
+        return coalescedCall;
+    }
+
+    void setCoalescedCall(RequestCoalescer.Call coalescedCall) {
+        this.coalescedCall = coalescedCall;
+    }
+
+    @Override
+    public void cancel() {
+        if (coalescedCall != null) {
+            RequestCoalescer.cancel(this);
+            return;
+        }
+
+        super.cancel();
+    }
+
+    /**
+     * Cancels this request itself, even if other coalesced requests are waiting for it.
+     */
+    void cancelRequest() {
+        super.cancel();
     }
 
     /**
@@ -163,7 +672,7 @@ public abstract class BaseRequest<T> extends Request<T> {
 
     @Override
     public Map<String, String> getHeaders() throws AuthFailureError {
-        headers.putAll(ReflectionUtil.getMethodsAndFieldValuesAnnotatedWithHeaderParam(this));
+        getDescriptor().readHeaderParams(this, headers);
         return headers;
     }
 
@@ -221,28 +730,60 @@ public abstract class BaseRequest<T> extends Request<T> {
         return super.getMethod();
     }
 
+    /**
+     * Returns the URL with the path parameters substituted and the query parameters appended.
+     * The annotated path and query parameters are read on every call, but the URL is only
+     * expanded again when the parameters have changed since the previous call (Volley calls
+     * this several times per request).
+     */
     @Override
     public String getUrl() {
-        String _url = (url != null ? url : super.getUrl());
+        UrlTemplate template = getUrlTemplate();
+        if (template == null)
+            return null;
 
-        if (_url != null) {
-            pathParams.putAll(ReflectionUtil.getMethodsAndFieldValuesAnnotatedWithPathParam(this));
-            if (getPathParams() != null) {
-                for (Map.Entry<String, String> entry : getPathParams().entrySet()) {
-                    _url = _url.replaceAll("\\{" + entry.getKey() + "\\}", entry.getValue());
-                }
-            }
+        getDescriptor().readPathParams(this, pathParams);
+        getDescriptor().readQueryParams(this, queryParams);
 
-            queryParams.putAll(ReflectionUtil.getMethodsAndFieldValuesAnnotatedWithQueryParam(this));
-            if (getQueryParams() != null) {
-                for (Map.Entry<String, String> entry : getQueryParams().entrySet()) {
-                    String c = _url.contains("?") ? "&" : "?";
-                    _url += c + entry.getKey() + "=" + entry.getValue();
-                }
+        Map<String, String> path = getPathParams();
+        Map<String, String> query = getQueryParams();
+        ExpandedUrl expanded = expandedUrl;
+        if (expanded == null || !expanded.pathParams.equals(path) || !expanded.queryParams.equals(query)) {
+            expanded = new ExpandedUrl(template.expand(path, query), path, query);
+            expandedUrl = expanded;
+        }
+
+        return expanded.url;
+    }
+
+    /**
+     * An expanded URL, with the parameters it was expanded from.
+     */
+    private static final class ExpandedUrl {
+        final String url;
+        final Map<String, String> pathParams;
+        final Map<String, String> queryParams;
+
+        ExpandedUrl(String url, Map<String, String> pathParams, Map<String, String> queryParams) {
+            this.url = url;
+            this.pathParams = new HashMap<>(pathParams);
+            this.queryParams = new HashMap<>(queryParams);
+        }
+    }
+
+    /**
+     * @return The parsed URL of this request, with the placeholders not yet substituted.
+     */
+    protected UrlTemplate getUrlTemplate() {
+        if (urlTemplate == null) {
+            if (url != null) {
+                urlTemplate = getDescriptor().getUrlTemplate();
+            } else if (super.getUrl() != null) {
+                urlTemplate = UrlTemplate.compile(super.getUrl());
             }
         }
 
-        return _url;
+        return urlTemplate;
     }
 
     /**
@@ -252,9 +793,19 @@ public abstract class BaseRequest<T> extends Request<T> {
      * @return True if this is a valid response, false if not, or null if no status code requirements were set.
      */
     protected Boolean isResponseValid(NetworkResponse response) {
-        if (response != null && expectedStatusCode.length > 0 && expectedStatusCode[0] != 0) {
+        return response != null ? isStatusCodeValid(response.statusCode) : null;
+    }
+
+    /**
+     * Checks whether the given status code conforms to our status code requirements.
+     *
+     * @param statusCode The status code of the response.
+     * @return True if this is a valid status code, false if not, or null if no status code requirements were set.
+     */
+    protected Boolean isStatusCodeValid(int statusCode) {
+        if (expectedStatusCode.length > 0 && expectedStatusCode[0] != 0) {
             for (int code : expectedStatusCode) {
-                if (code == response.statusCode) {
+                if (code == statusCode) {
                     return true;
                 }
             }
@@ -267,9 +818,34 @@ public abstract class BaseRequest<T> extends Request<T> {
 
     @Override
     protected void deliverResponse(T basicResponseDto) {
+        boolean intermediate = intermediateResponse;
+        intermediateResponse = false;
+
+        if (skipDelivery) {
+            skipDelivery = false;
+            finishCoalescedCall();
+            return;
+        }
+
+        RequestCoalescer.Call call = coalescedCall;
+        if (call != null && call.leader == this) {
+            RequestCoalescer.deliverResponse(call, basicResponseDto, intermediate);
+            return;
+        }
+
+        notifyListener(basicResponseDto);
+    }
+
+    /**
+     * Calls the listener of this request with the response.
+     */
+    void notifyListener(T basicResponseDto) {
+        timeline.markDelivered();
         if (listener != null) {
             listener.onResponse(basicResponseDto);
         }
+
+        publishMetrics(null);
     }
 
     public BaseRequest<T> setListener(Response.Listener<T> listener) {
@@ -287,15 +863,157 @@ public abstract class BaseRequest<T> extends Request<T> {
         return this;
     }
 
+    public String getQueueName() {
+        return queueName;
+    }
+
+    /**
+     * Sets the name of the queue of the {@link RequestQueueRegistry} that the request is sent to
+     * by {@link #send(Context)} and the futures, overriding the {@link QueueName} annotation.
+     * If it is null, the request is sent to the default queue.
+     */
+    public BaseRequest<T> setQueueName(String queueName) {
+        this.queueName = queueName;
+        return this;
+    }
+
+    /**
+     * @return The executor set with {@link #setDeliveryExecutor}, or null if the request uses the one of its queue.
+     */
+    public Executor getDeliveryExecutor() {
+        return deliveryExecutor;
+    }
+
+    /**
+     * Sets the executor that the response of this request is delivered with, instead of the
+     * default executor of its queue (the main thread, unless the queue is configured otherwise).
+     * Use {@link DeliveryExecutors#direct()} to receive it on the thread that parsed it.
+     * <p>
+     * It only takes effect on the queues that deliver with a {@link SwitchingResponseDelivery},
+     * like the default queue and the ones of the {@link RequestQueueRegistry}.
+     */
+    public BaseRequest<T> setDeliveryExecutor(Executor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+        return this;
+    }
+
+    /**
+     * @return The executor that the response of this request is actually delivered with. Before the
+     * request is sent, it is the executor of the queue that {@link #send(Context)} would send it to.
+     */
+    public Executor getResponseExecutor() {
+        Executor queueExecutor = getQueueDeliveryExecutor();
+        // the other deliveries ignore the executor of the request, and Volley's deliver on the main thread
+        if (queueExecutor == null)
+            return DeliveryExecutors.mainThread();
+
+        Executor executor = deliveryExecutor;
+        return executor != null ? executor : queueExecutor;
+    }
+
+    /**
+     * @return The default executor of the queue this request is sent to, or null if the queue
+     * doesn't deliver with a {@link SwitchingResponseDelivery}.
+     */
+    private Executor getQueueDeliveryExecutor() {
+        RequestQueue target = sentQueue;
+        if (target == null) {
+            String name = queueName;
+            QueueConfig config = name != null ? RequestQueueRegistry.getConfig(name) : null;
+            if (config != null)
+                return config.getDeliveryExecutor();
+
+            target = queue;
+            // the default queue is created with a SwitchingResponseDelivery when the request is sent
+            if (target == null)
+                return DeliveryExecutors.mainThread();
+        }
+
+        ResponseDelivery delivery = target.getResponseDelivery();
+        return delivery instanceof SwitchingResponseDelivery ? ((SwitchingResponseDelivery) delivery).getDefaultExecutor() : null;
+    }
+
     public static RequestQueue getQueue() {
         return queue;
     }
 
+    /**
+     * @return The default queue of the requests, which is created on the first call.
+     */
+    public static synchronized RequestQueue getQueue(Context context) {
+        if (queue == null) {
+            queue = new QueueConfig().newQueue(context, "volley");
+        }
+
+        return queue;
+    }
+
+    /**
+     * Sets the default queue of the requests, which is used by {@link #send(Context)}
+     * and the futures instead of the one created by {@link #getQueue(Context)}.
+     */
+    public static synchronized void setQueue(RequestQueue requestQueue) {
+        queue = requestQueue;
+    }
+
+    /**
+     * @return True while the expired cached response is parsed to be delivered instead of an error,
+     * see {@link CachePolicy#staleIfError()}. It must not be cached again as if it was fresh.
+     */
+    protected boolean isParsingStaleResponse() {
+        return parsingStaleResponse;
+    }
+
+    /**
+     * @return The error of the last network attempt of this request, or null if it hasn't failed.
+     */
+    public VolleyError getNetworkError() {
+        return networkError;
+    }
+
+    /**
+     * A failed attempt that is retried later hasn't delivered anything, see {@link #deliverError(VolleyError)}.
+     */
+    @Override
+    public void markDelivered() {
+        BackoffRetryPolicy backoff = getBackoffRetryPolicy();
+        if (backoff == null || backoff.getPendingRetryDelay() < 0)
+            super.markDelivered();
+    }
+
     @Override
     public void deliverError(VolleyError error) {
+        BackoffRetryPolicy backoff = getBackoffRetryPolicy();
+        RequestQueue queue = sentQueue;
+        long retryDelayMs = backoff != null ? backoff.takePendingRetryDelay() : -1;
+        if (retryDelayMs >= 0 && queue != null) {
+            RetryScheduler.forQueue(queue).schedule(this, retryDelayMs);
+            return;
+        }
+
+        Response<T> stale = staleResponse;
+        if (stale != null) {
+            staleResponse = null;
+            // if the cached response has already been delivered before the refresh, the error is dropped
+            if (!hasHadResponseDelivered())
+                deliverResponse(stale.result);
+            else
+                finishCoalescedCall();
+            return;
+        }
+
+        RequestCoalescer.Call call = coalescedCall;
+        if (call != null && call.leader == this) {
+            RequestCoalescer.deliverError(call, error);
+            return;
+        }
+
+        timeline.markDelivered();
         if (getErrorListener() != null) {
             getErrorListener().onErrorResponse(error);
         }
+
+        publishMetrics(error);
     }
 
     /**
@@ -0,0 +1,159 @@
+package com.rainy.networkhelper.request;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.RequestQueue;
+import com.android.volley.VolleyError;
+import com.rainy.networkhelper.annotation.Batchable;
+import com.rainy.networkhelper.batch.BatchCodec;
+import com.rainy.networkhelper.batch.BatchPart;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects the {@link Batchable} requests sent to a queue, and sends them as batches.
+ * A batch is sent when its window elapses or when it is full, whichever comes first.
+ */
+final class BatchDispatcher {
+    private static final Map<RequestQueue, BatchDispatcher> dispatchers = new WeakHashMap<>();
+    private static final ConcurrentMap<Class<? extends BatchCodec>, BatchCodec> codecs = new ConcurrentHashMap<>();
+
+    private final RequestQueue queue;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, List<BaseRequest<?>>> batches = new HashMap<>();
+
+    private BatchDispatcher(RequestQueue queue) {
+        this.queue = queue;
+    }
+
+    /**
+     * @return The dispatcher of the given queue, which is created on the first call.
+     */
+    static BatchDispatcher forQueue(RequestQueue queue) {
+        synchronized (dispatchers) {
+            BatchDispatcher dispatcher = dispatchers.get(queue);
+            if (dispatcher == null) {
+                dispatcher = new BatchDispatcher(queue);
+                dispatchers.put(queue, dispatcher);
+            }
+
+            return dispatcher;
+        }
+    }
+
+    /**
+     * Adds the request to the current batch of its endpoint.
+     */
+    void add(BaseRequest<?> request, final Batchable batchable) {
+        final String key = batchable.url() + " " + batchable.codec().getName();
+        final List<BaseRequest<?>> batch;
+        List<BaseRequest<?>> full = null;
+        boolean created = false;
+
+        synchronized (batches) {
+            List<BaseRequest<?>> current = batches.get(key);
+            if (current == null) {
+                current = new ArrayList<>();
+                batches.put(key, current);
+                created = true;
+            }
+
+            current.add(request);
+            if (current.size() >= batchable.maxSize()) {
+                batches.remove(key);
+                full = current;
+            }
+            batch = current;
+        }
+
+        if (full != null) {
+            send(batchable, full);
+        } else if (created) {
+            handler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (batches) {
+                        // the batch may have been sent already because it got full
+                        if (batches.get(key) != batch)
+                            return;
+                        batches.remove(key);
+                    }
+
+                    send(batchable, batch);
+                }
+            }, batchable.windowMs());
+        }
+    }
+
+    private void send(Batchable batchable, List<BaseRequest<?>> batch) {
+        if (batch.size() == 1) {
+            BaseRequest.addToQueue(queue, batch.get(0));
+            return;
+        }
+
+        List<BaseRequest<?>> requests = new ArrayList<>(batch.size());
+        List<BatchPart> parts = new ArrayList<>(batch.size());
+        for (BaseRequest<?> request : batch) {
+            if (request.isCanceled())
+                continue;
+
+            try {
+                parts.add(new BatchPart(getMethodName(request.getMethod()), request.getUrl(), request.getHeaders(), request.getBody(), request.getBodyContentType()));
+                requests.add(request);
+            } catch (AuthFailureError e) {
+                request.deliverError(e);
+            } catch (RuntimeException e) {
+                request.deliverError(new VolleyError(e));
+            }
+        }
+
+        if (!requests.isEmpty())
+            BaseRequest.addToQueue(queue, new BatchRequest(batchable.url(), getCodec(batchable.codec()), requests, parts));
+    }
+
+    private static BatchCodec getCodec(Class<? extends BatchCodec> type) {
+        BatchCodec codec = codecs.get(type);
+        if (codec == null) {
+            try {
+                codec = type.newInstance();
+            } catch (Exception e) {
+                throw new IllegalArgumentException("the batch codec must have a public no-arg constructor", e);
+            }
+
+            BatchCodec previous = codecs.putIfAbsent(type, codec);
+            if (previous != null)
+                codec = previous;
+        }
+
+        return codec;
+    }
+
+    private static String getMethodName(int method) {
+        switch (method) {
+            case BaseRequest.Method.POST:
+                return "POST";
+            case BaseRequest.Method.PUT:
+                return "PUT";
+            case BaseRequest.Method.DELETE:
+                return "DELETE";
+            case BaseRequest.Method.HEAD:
+                return "HEAD";
+            case BaseRequest.Method.OPTIONS:
+                return "OPTIONS";
+            case BaseRequest.Method.TRACE:
+                return "TRACE";
+            case BaseRequest.Method.PATCH:
+                return "PATCH";
+            default:
+                return "GET";
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.rainy.networkhelper.request;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.rainy.networkhelper.batch.BatchCodec;
+import com.rainy.networkhelper.batch.BatchPart;
+import com.rainy.networkhelper.batch.BatchPartResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The single HTTP request of a batch. The parts of the batch response are parsed by
+ * their own requests on the network thread, and then delivered to each of them.
+ */
+final class BatchRequest extends Request<List<Response<?>>> {
+    private final BatchCodec codec;
+    private final List<BaseRequest<?>> requests;
+    private final List<BatchPart> parts;
+
+    BatchRequest(String url, BatchCodec codec, List<BaseRequest<?>> requests, List<BatchPart> parts) {
+        super(Method.POST, url, null);
+        this.codec = codec;
+        this.requests = requests;
+        this.parts = parts;
+        setShouldCache(false);
+    }
+
+    @Override
+    public String getBodyContentType() {
+        return codec.getContentType();
+    }
+
+    @Override
+    public byte[] getBody() throws AuthFailureError {
+        try {
+            return codec.encode(parts);
+        } catch (Exception e) {
+            throw new RuntimeException("failed to serialize body", e);
+        }
+    }
+
+    @Override
+    protected Response<List<Response<?>>> parseNetworkResponse(NetworkResponse response) {
+        List<BatchPartResponse> partResponses;
+        try {
+            partResponses = codec.decode(response.data, response.headers);
+        } catch (Exception e) {
+            return Response.error(new ParseError(e));
+        }
+
+        if (partResponses.size() != requests.size())
+            return Response.error(new ParseError(new IllegalStateException("expected " + requests.size() + " responses in the batch, got " + partResponses.size())));
+
+        List<Response<?>> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++)
+            results.add(requests.get(i).parseBatchPart(partResponses.get(i), response.networkTimeMs));
+
+        return Response.success(results, null);
+    }
+
+    @Override
+    protected void deliverResponse(List<Response<?>> results) {
+        for (int i = 0; i < requests.size(); i++)
+            requests.get(i).deliverBatchResult(results.get(i));
+    }
+
+    @Override
+    public void deliverError(VolleyError error) {
+        for (BaseRequest<?> request : requests) {
+            if (!request.isCanceled())
+                request.deliverError(error);
+        }
+    }
+}
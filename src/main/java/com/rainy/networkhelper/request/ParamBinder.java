@@ -0,0 +1,25 @@
+package com.rainy.networkhelper.request;
+
+import java.util.Map;
+
+/**
+ * Reads the {@code PathParam}, {@code QueryParam} and {@code HeaderParam}
+ * values of a request without reflection. Implementations are generated
+ * at compile time by the NetworkHelper annotation processor, and are named
+ * after the request class with a {@code _ParamBinder} suffix (nested class
+ * names are joined with underscores, e.g. {@code Outer_Inner_ParamBinder}).
+ * <p>
+ * When no binder has been generated for a request class, the values are
+ * read with {@link com.rainy.networkhelper.util.ReflectionUtil} instead.
+ *
+ * @param <R> The type of the request.
+ */
+public interface ParamBinder<R> {
+    String SUFFIX = "_ParamBinder";
+
+    void bindPathParams(R request, Map<String, String> into);
+
+    void bindQueryParams(R request, Map<String, String> into);
+
+    void bindHeaderParams(R request, Map<String, String> into);
+}
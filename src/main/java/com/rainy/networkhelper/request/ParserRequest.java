@@ -3,31 +3,61 @@ package com.rainy.networkhelper.request;
 import android.content.Context;
 
 import com.android.volley.AuthFailureError;
+import com.android.volley.Cache;
+import com.android.volley.Header;
 import com.android.volley.NetworkResponse;
 import com.android.volley.ParseError;
 import com.android.volley.Response;
 import com.android.volley.toolbox.HttpHeaderParser;
-import com.google.common.reflect.TypeToken;
+import com.google.common.io.CountingOutputStream;
+import com.rainy.networkhelper.annotation.CompressBody;
+import com.rainy.networkhelper.cache.ParsedResponseCache;
 import com.rainy.networkhelper.exception.UnexpectedStatusCodeError;
 import com.rainy.networkhelper.future.ParsedAsyncRequestFuture;
 import com.rainy.networkhelper.mapper.BodyMapper;
 import com.rainy.networkhelper.mapper.GsonBodyMapper;
+import com.rainy.networkhelper.mapper.StreamingBodyMapper;
+import com.rainy.networkhelper.network.ChunkedHurlStack;
+import com.rainy.networkhelper.network.StreamingHttpStack;
+import com.rainy.networkhelper.network.StreamingRequest;
 import com.rainy.networkhelper.response.ParsedResponse;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Type;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+public class ParserRequest<T> extends BaseRequest<ParsedResponse<T>> implements StreamingRequest {
+    /**
+     * The default body encoder and response decoder, shared between the requests
+     * so that its Gson instance and type adapters are created only once.
+     */
+    private static final BodyMapper defaultMapper = new GsonBodyMapper();
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
 
-public class ParserRequest<T> extends BaseRequest<ParsedResponse<T>> {
     private Type responseType = null;
     private Object requestDto = null;
-    private BodyMapper bodyEncoder = new GsonBodyMapper();
-    private BodyMapper responseDecoder = new GsonBodyMapper();
+    private BodyMapper bodyEncoder = defaultMapper;
+    private BodyMapper responseDecoder = defaultMapper;
+    private boolean streamBody = false;
+    private boolean streamResponse = false;
+    private boolean responseStreamed = false;
+    private T streamedResponse;
+    private Exception streamError;
+    private ParsedResponseCache parsedResponseCache;
+    private int compressBodyThreshold = -1;
+    private byte[] encodedBody;
 
     public ParserRequest() {
         super();
-        this.responseType = new TypeToken<T>(getClass()) {
-        }.getType();
+        this.responseType = getDescriptor().getResponseType();
+        fetchCompressBody();
     }
 
     /**
@@ -41,8 +71,8 @@ public class ParserRequest<T> extends BaseRequest<ParsedResponse<T>> {
      */
     public ParserRequest(Response.Listener<ParsedResponse<T>> listener, Response.ErrorListener errorListener) throws IllegalArgumentException {
         super(listener, errorListener);
-        this.responseType = new TypeToken<T>(getClass()) {
-        }.getType();
+        this.responseType = getDescriptor().getResponseType();
+        fetchCompressBody();
     }
 
     /**
@@ -58,6 +88,7 @@ public class ParserRequest<T> extends BaseRequest<ParsedResponse<T>> {
     public ParserRequest(Type responseType, Response.Listener<ParsedResponse<T>> listener, Response.ErrorListener errorListener) throws IllegalArgumentException {
         super(listener, errorListener);
         this.responseType = responseType;
+        fetchCompressBody();
     }
 
     public ParserRequest(int httpMethod, String url, Type responseType, Response.Listener<ParsedResponse<T>> listener, Response.ErrorListener errorListener) {
@@ -70,15 +101,60 @@ public class ParserRequest<T> extends BaseRequest<ParsedResponse<T>> {
         this.responseType = responseType;
     }
 
+    private void fetchCompressBody() {
+        CompressBody compressBody = getDescriptor().getCompressBody();
+        if (compressBody != null)
+            this.compressBodyThreshold = compressBody.minSize();
+    }
+
     public Object getRequestDto() {
         return requestDto;
     }
 
     public ParserRequest<T> setRequestDto(Object requestDto) {
         this.requestDto = requestDto;
+        this.encodedBody = null;
+        return this;
+    }
+
+    public int getCompressBodyThreshold() {
+        return compressBodyThreshold;
+    }
+
+    /**
+     * Sets the size of the encoded body in bytes, from which it is gzipped and sent with a
+     * {@code Content-Encoding: gzip} header, like with the {@link CompressBody} annotation.
+     *
+     * @param compressBodyThreshold The size from which the body is compressed, or -1 to never compress it.
+     */
+    public ParserRequest<T> setCompressBodyThreshold(int compressBodyThreshold) {
+        this.compressBodyThreshold = compressBodyThreshold;
         return this;
     }
 
+    /**
+     * @return Whether the body is sent compressed. To decide it, the body is encoded (only once).
+     */
+    protected boolean isBodyCompressed() {
+        if (compressBodyThreshold < 0 || requestDto == null)
+            return false;
+
+        if (shouldStreamBody())
+            return true;
+
+        byte[] body = getEncodedBody();
+        return body != null && body.length >= compressBodyThreshold;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() throws AuthFailureError {
+        Map<String, String> headers = super.getHeaders();
+        if (isBodyCompressed())
+            headers.put(HEADER_CONTENT_ENCODING, "gzip");
+
+        return headers;
+    }
+
     @Override
     public String getBodyContentType() {
         try {
@@ -108,32 +184,175 @@ public class ParserRequest<T> extends BaseRequest<ParsedResponse<T>> {
         return this;
     }
 
+    public boolean isStreamBody() {
+        return streamBody;
+    }
+
+    /**
+     * Sets whether the request DTO should be encoded straight into the connection using
+     * chunked transfer encoding, instead of encoding it into a byte array first. Use it for
+     * large bodies (like bulk uploads), small ones are sent faster as a byte array. It only
+     * works if the body encoder is a {@link StreamingBodyMapper} and the request is sent through
+     * a {@link ChunkedHurlStack} (the default queue uses one). Otherwise the body is sent as usual.
+     */
+    public ParserRequest<T> setStreamBody(boolean streamBody) {
+        this.streamBody = streamBody;
+        return this;
+    }
+
+    @Override
+    public boolean shouldStreamBody() {
+        return streamBody && requestDto != null && bodyEncoder instanceof StreamingBodyMapper;
+    }
+
+    @Override
+    public void writeBody(OutputStream out) throws IOException {
+        boolean compress = compressBodyThreshold >= 0;
+        CountingOutputStream wire = new CountingOutputStream(out);
+        GZIPOutputStream gzip = compress ? new GZIPOutputStream(wire) : null;
+        CountingOutputStream body = new CountingOutputStream(compress ? gzip : wire);
+        try {
+            ((StreamingBodyMapper) bodyEncoder).encodeTo(requestDto, body, getParamsEncoding());
+            if (gzip != null)
+                gzip.finish();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("failed to serialize body", e);
+        }
+
+        getTimeline().setRequestBytes(body.getCount());
+        if (compress)
+            getTimeline().setRequestWireBytes(wire.getCount());
+    }
+
+    public boolean isStreamResponse() {
+        return streamResponse;
+    }
+
+    /**
+     * Sets whether the response should be decoded while it is being read from the connection,
+     * instead of buffering the whole body first. This lowers the peak memory usage and the
+     * latency of large responses, but it only works if the response decoder is a
+     * {@link StreamingBodyMapper} and the request is sent through a {@link StreamingHttpStack}
+     * (the default queue uses one). Otherwise the response is buffered as usual.
+     * <p>
+     * <b>Please note that streamed responses are not stored in Volley's cache, and the
+     * {@link NetworkResponse} of the {@link ParsedResponse} will have an empty body.</b>
+     */
+    public ParserRequest<T> setStreamResponse(boolean streamResponse) {
+        this.streamResponse = streamResponse;
+        return this;
+    }
+
+    @Override
+    public boolean shouldStreamResponse(int statusCode) {
+        if (!streamResponse || !(responseDecoder instanceof StreamingBodyMapper) || responseType == null || responseType == Void.class)
+            return false;
+
+        return statusCode >= 200 && statusCode <= 299 && statusCode != 204 && !Boolean.FALSE.equals(isStatusCodeValid(statusCode));
+    }
+
+    @Override
+    public void consumeResponseStream(int statusCode, List<Header> headers, InputStream content) throws IOException {
+        Map<String, String> headerMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (headers != null) {
+            for (Header header : headers)
+                headerMap.put(header.getName(), header.getValue());
+        }
+
+        streamedResponse = null;
+        streamError = null;
+        getTimeline().setStatusCode(statusCode);
+        getTimeline().markParseStarted();
+        try {
+            streamedResponse = ((StreamingBodyMapper) responseDecoder).decodeParams(content, responseType, HttpHeaderParser.parseCharset(headerMap));
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            streamError = e;
+        } finally {
+            getTimeline().markParseFinished();
+        }
+        responseStreamed = true;
+    }
+
     @Override
     public byte[] getBody() throws AuthFailureError {
-        if (requestDto != null) {
-            try {
-                return bodyEncoder.encodeParams(requestDto, getParamsEncoding());
-            } catch (Exception e) {
-                throw new RuntimeException("failed to serialize body", e);
-            }
+        byte[] body = getEncodedBody();
+        if (body == null)
+            return null;
+
+        getTimeline().setRequestBytes(body.length);
+        if (!isBodyCompressed())
+            return body;
+
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+            GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+            gzip.write(body);
+            gzip.close();
+            getTimeline().setRequestWireBytes(compressed.size());
+            return compressed.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("failed to compress body", e);
         }
+    }
+
+    /**
+     * @return The request DTO encoded by the body encoder. If the body may be compressed, it is
+     * encoded only once, because {@link #getHeaders()} needs its size too.
+     */
+    private byte[] getEncodedBody() {
+        if (requestDto == null)
+            return null;
+
+        if (encodedBody != null)
+            return encodedBody;
 
-        return null;
+        try {
+            byte[] body = bodyEncoder.encodeParams(requestDto, getParamsEncoding());
+            if (compressBodyThreshold >= 0)
+                encodedBody = body;
+            return body;
+        } catch (Exception e) {
+            throw new RuntimeException("failed to serialize body", e);
+        }
     }
 
     @Override
     protected Response<ParsedResponse<T>> parseNetworkResponse(NetworkResponse response) {
         Boolean valid = isResponseValid(response);
+        getTimeline().setStatusCode(response.statusCode);
+        if (!responseStreamed && response.data != null)
+            getTimeline().setResponseBytes(response.data.length);
 
         if (valid == null || valid) {
             try {
                 if (responseType == null || responseType == Void.class) {
                     ParsedResponse<T> parsedResponse = new ParsedResponse<>(response, null);
-                    return Response.success(parsedResponse, HttpHeaderParser.parseCacheHeaders(response));
+                    return Response.success(parsedResponse, parseCacheEntry(response));
+                } else if (responseStreamed) {
+                    // the body has already been decoded by consumeResponseStream, and it can't be cached
+                    responseStreamed = false;
+                    if (streamError != null)
+                        return Response.error(new ParseError(streamError));
+
+                    ParsedResponse<T> parsedResponse = new ParsedResponse<>(response, streamedResponse);
+                    return Response.success(parsedResponse, null);
                 } else {
-                    T parsed = getResponseDecoder().decodeParams(response.data, responseType, HttpHeaderParser.parseCharset(response.headers));
-                    ParsedResponse<T> parsedResponse = new ParsedResponse<>(response, parsed);
-                    return Response.success(parsedResponse, HttpHeaderParser.parseCacheHeaders(response));
+                    // a response replayed from Volley's cache keeps the expiry of its entry
+                    Cache.Entry cacheEntry = isReplayedFromCache(response) ? getCacheEntry() : parseCacheEntry(response);
+                    ParsedResponse<T> parsedResponse = getCachedResponse(response, cacheEntry);
+                    if (parsedResponse == null) {
+                        getTimeline().markParseStarted();
+                        T parsed = getResponseDecoder().decodeParams(response.data, responseType, HttpHeaderParser.parseCharset(response.headers));
+                        getTimeline().markParseFinished();
+                        parsedResponse = new ParsedResponse<>(response, parsed);
+                        cacheResponse(response, parsedResponse, cacheEntry);
+                    }
+
+                    return Response.success(parsedResponse, cacheEntry);
                 }
             } catch (UnsupportedEncodingException e) {
                 return Response.error(new ParseError(e));
@@ -145,6 +364,100 @@ public class ParserRequest<T> extends BaseRequest<ParsedResponse<T>> {
         }
     }
 
+    public ParsedResponseCache getParsedResponseCache() {
+        return parsedResponseCache;
+    }
+
+    /**
+     * Sets the in-memory cache of the parsed responses. When it is set, a response that has
+     * already been parsed (from the same body) is taken from it instead of being decoded again,
+     * and a fresh one is delivered right away when the request is sent, without going to the queue.
+     * The same cache should be shared between the requests.
+     */
+    public ParserRequest<T> setParsedResponseCache(ParsedResponseCache parsedResponseCache) {
+        this.parsedResponseCache = parsedResponseCache;
+        return this;
+    }
+
+    private boolean usesParsedResponseCache() {
+        return parsedResponseCache != null && shouldCache() && responseType != null && responseType != Void.class;
+    }
+
+    @Override
+    protected boolean deliverCachedResponse() {
+        if (!usesParsedResponseCache())
+            return false;
+
+        final ParsedResponse<T> cached = parsedResponseCache.getFresh(getCacheKey(), responseType);
+        if (cached == null)
+            return false;
+
+        getResponseExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!isCanceled())
+                    deliverResponse(cached);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Returns the response parsed earlier from the same body, if it is cached. If the response
+     * was revalidated over the network, the expiry of the cached one is updated too. This is only
+     * done when a {@link ParsedResponseCache} has been set, see {@link #setParsedResponseCache},
+     * otherwise every response is parsed.
+     * <p>
+     * Volley sends the ETag and Last-Modified of its cache entry as If-None-Match and
+     * If-Modified-Since. On a 304 the cached response is reused even if it has expired.
+     * It is recognised by its ETag, so the unchanged body isn't compared, or by comparing
+     * the bodies if there is no ETag.
+     */
+    private ParsedResponse<T> getCachedResponse(NetworkResponse response, Cache.Entry cacheEntry) {
+        if (!usesParsedResponseCache())
+            return null;
+
+        ParsedResponse<T> cached;
+        if (response.notModified && cacheEntry != null) {
+            cached = parsedResponseCache.revalidate(getCacheKey(), responseType, cacheEntry.etag, response.data, cacheEntry.ttl, cacheEntry.softTtl);
+            return cached != null ? new ParsedResponse<>(response, cached.getParsedResponse()) : null;
+        }
+
+        cached = parsedResponseCache.get(getCacheKey(), responseType, response.data);
+        if (cached == null)
+            return null;
+
+        // a response replayed from Volley's cache doesn't tell anything new about the expiry
+        if (cacheEntry != null && !isReplayedFromCache(response))
+            parsedResponseCache.refresh(getCacheKey(), responseType, response.data, cacheEntry.ttl, cacheEntry.softTtl);
+
+        return new ParsedResponse<>(response, cached.getParsedResponse());
+    }
+
+    /**
+     * @return True if the response is the body of this request's entry in Volley's cache, rather
+     * than a response from the network. A 304 carries the cached body too, but it is a fresh answer.
+     */
+    private boolean isReplayedFromCache(NetworkResponse response) {
+        Cache.Entry cached = getCacheEntry();
+        return cached != null && cached.data != null && response.data == cached.data && !response.notModified;
+    }
+
+    private void cacheResponse(NetworkResponse response, ParsedResponse<T> parsedResponse, Cache.Entry cacheEntry) {
+        if (cacheEntry != null && response.data != null && usesParsedResponseCache() && !isParsingStaleResponse())
+            parsedResponseCache.put(getCacheKey(), responseType, response.data, cacheEntry.etag, parsedResponse, cacheEntry.ttl, cacheEntry.softTtl);
+    }
+
+    /**
+     * The response type and the decoder are part of the key too, so only the
+     * requests that would parse the response the same way are coalesced.
+     */
+    @Override
+    protected String getCoalescingKey() {
+        String key = super.getCoalescingKey();
+        return key != null ? key + "\n" + responseType + " " + responseDecoder.getClass().getName() : null;
+    }
+
     /**
      * @return The responseType of the response object that was obtained from
      * either the subclass' generic responseType or from calling one of the responseType
@@ -169,4 +482,4 @@ public class ParserRequest<T> extends BaseRequest<ParsedResponse<T>> {
         setErrorListener(future);
         return future;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,172 @@
+package com.rainy.networkhelper.request;
+
+import com.android.volley.VolleyError;
+import com.rainy.networkhelper.delivery.DeliveryExecutors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps track of the coalesced requests that are in flight. The first request with
+ * a given key (the leader) is sent, and the identical requests sent while it is in
+ * flight are attached to it instead of being sent. When the leader's response is
+ * delivered, it is delivered to every attached request too, so the network call and
+ * the parsing of the response happen only once.
+ * <p>
+ * If the leader's response is an intermediate one (a soft expired cached response that
+ * is being refreshed), the attached requests stay attached to receive the refreshed one
+ * too, but no other request can attach to the call any more.
+ */
+final class RequestCoalescer {
+    private static final Map<String, Call> calls = new HashMap<>();
+
+    private RequestCoalescer() {
+    }
+
+    /**
+     * Attaches the request to the call in flight with the same key, or starts a new call with it.
+     *
+     * @return True if the request has been attached to a call in flight, so it must not be sent.
+     */
+    static boolean attach(BaseRequest<?> request, String key) {
+        synchronized (calls) {
+            Call call = calls.get(key);
+            if (call == null) {
+                call = new Call(key, request);
+                calls.put(key, call);
+                request.setCoalescedCall(call);
+                return false;
+            }
+
+            call.subscribers.add(request);
+            request.setCoalescedCall(call);
+            return true;
+        }
+    }
+
+    /**
+     * Delivers the leader's response to every request that is still attached to its call.
+     * The requests that have another delivery executor than the leader receive it through their own.
+     *
+     * @param intermediate True if the leader will deliver a refreshed response later, so the
+     *                     requests must stay attached to the call.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> void deliverResponse(Call call, final T response, boolean intermediate) {
+        Executor executor = call.leader.getResponseExecutor();
+        for (final BaseRequest<?> subscriber : intermediate ? detach(call) : finish(call)) {
+            Executor own = subscriber.getResponseExecutor();
+            if (subscriber == call.leader && intermediate) {
+                // the leader is still attached, so it would deliver to the call again
+                ((BaseRequest<T>) subscriber).notifyListener(response);
+            } else if (own == executor) {
+                ((BaseRequest<T>) subscriber).deliverResponse(response);
+            } else {
+                DeliveryExecutors.post(own, new Runnable() {
+                    @Override
+                    public void run() {
+                        ((BaseRequest<T>) subscriber).deliverResponse(response);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Delivers the leader's error to every request that is still attached to its call,
+     * through their own delivery executor, like the response.
+     */
+    static void deliverError(Call call, final VolleyError error) {
+        Executor executor = call.leader.getResponseExecutor();
+        for (final BaseRequest<?> subscriber : finish(call)) {
+            Executor own = subscriber.getResponseExecutor();
+            if (own == executor) {
+                subscriber.deliverError(error);
+            } else {
+                DeliveryExecutors.post(own, new Runnable() {
+                    @Override
+                    public void run() {
+                        subscriber.deliverError(error);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Removes the call from the calls in flight, so no more requests are attached to it, but
+     * keeps the attached requests.
+     *
+     * @return The attached requests.
+     */
+    private static List<BaseRequest<?>> detach(Call call) {
+        synchronized (calls) {
+            if (calls.get(call.key) == call)
+                calls.remove(call.key);
+
+            return new ArrayList<>(call.subscribers);
+        }
+    }
+
+    /**
+     * Removes the call from the calls in flight, and detaches every request from it.
+     *
+     * @return The requests that were attached.
+     */
+    static List<BaseRequest<?>> finish(Call call) {
+        synchronized (calls) {
+            if (calls.get(call.key) == call)
+                calls.remove(call.key);
+
+            for (BaseRequest<?> subscriber : call.subscribers)
+                subscriber.setCoalescedCall(null);
+            call.leader.setCoalescedCall(null);
+
+            List<BaseRequest<?>> subscribers = new ArrayList<>(call.subscribers);
+            call.subscribers.clear();
+            return subscribers;
+        }
+    }
+
+    /**
+     * Detaches the given request from its call. The call itself (the leader's network request)
+     * is only cancelled when no other request is waiting for it anymore.
+     */
+    static void cancel(BaseRequest<?> request) {
+        Call call;
+        boolean last;
+        synchronized (calls) {
+            call = request.getCoalescedCall();
+            if (call == null)
+                return;
+
+            call.subscribers.remove(request);
+            if (request != call.leader)
+                request.setCoalescedCall(null);
+
+            last = call.subscribers.isEmpty();
+            if (last && calls.get(call.key) == call)
+                calls.remove(call.key);
+        }
+
+        if (request != call.leader)
+            request.cancelRequest();
+        if (last)
+            call.leader.cancelRequest();
+    }
+
+    static final class Call {
+        final String key;
+        final BaseRequest<?> leader;
+        final List<BaseRequest<?>> subscribers = new ArrayList<>();
+
+        Call(String key, BaseRequest<?> leader) {
+            this.key = key;
+            this.leader = leader;
+            this.subscribers.add(leader);
+        }
+    }
+}
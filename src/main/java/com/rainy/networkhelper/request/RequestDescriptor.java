@@ -0,0 +1,245 @@
+package com.rainy.networkhelper.request;
+
+import com.google.common.reflect.TypeToken;
+import com.rainy.networkhelper.annotation.Batchable;
+import com.rainy.networkhelper.annotation.CachePolicy;
+import com.rainy.networkhelper.annotation.CompressBody;
+import com.rainy.networkhelper.annotation.ExpectedStatusCode;
+import com.rainy.networkhelper.annotation.HeaderParam;
+import com.rainy.networkhelper.annotation.PathParam;
+import com.rainy.networkhelper.annotation.Priority;
+import com.rainy.networkhelper.annotation.QueryConstantParam;
+import com.rainy.networkhelper.annotation.QueryConstantParams;
+import com.rainy.networkhelper.annotation.QueryParam;
+import com.rainy.networkhelper.annotation.QueueName;
+import com.rainy.networkhelper.annotation.RequestMethod;
+import com.rainy.networkhelper.annotation.Retry;
+import com.rainy.networkhelper.util.ParamAccessor;
+import com.rainy.networkhelper.util.ReflectionUtil;
+import com.rainy.networkhelper.util.UrlTemplate;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable description of a request class: everything that can be read
+ * from its annotations and generic type. It is built only once per class
+ * and then shared between all of the instances of that class, so the
+ * requests don't have to scan their class hierarchy every time.
+ */
+final class RequestDescriptor {
+    private static final ConcurrentMap<Class<?>, RequestDescriptor> descriptors = new ConcurrentHashMap<>();
+
+    private final RequestMethod requestMethod;
+    private final UrlTemplate urlTemplate;
+    private final Map<String, String> constantQueryParams;
+    private final int[] expectedStatusCodes;
+    private final CachePolicy cachePolicy;
+    private final CompressBody compressBody;
+    private final Batchable batchable;
+    private final Retry retry;
+    private final Priority priority;
+    private final QueueName queueName;
+    private final Type responseType;
+    private final ParamBinder<Object> binder;
+    private final List<ParamAccessor> pathParams;
+    private final List<ParamAccessor> queryParams;
+    private final List<ParamAccessor> headerParams;
+
+    private RequestDescriptor(Class<?> type) {
+        this.requestMethod = (RequestMethod) ReflectionUtil.getClassAnnotation(type, RequestMethod.class);
+        this.urlTemplate = requestMethod != null && requestMethod.url() != null ? UrlTemplate.compile(requestMethod.url()) : null;
+
+        Map<String, String> constantQueryParams = new HashMap<>();
+        QueryConstantParam queryConstantParam = (QueryConstantParam) ReflectionUtil.getClassAnnotation(type, QueryConstantParam.class);
+        if (queryConstantParam != null) {
+            constantQueryParams.put(queryConstantParam.name(), queryConstantParam.value());
+        }
+
+        QueryConstantParams queryConstantParams = (QueryConstantParams) ReflectionUtil.getClassAnnotation(type, QueryConstantParams.class);
+        if (queryConstantParams != null) {
+            for (QueryConstantParam queryConstantParam1 : queryConstantParams.value())
+                constantQueryParams.put(queryConstantParam1.name(), queryConstantParam1.value());
+        }
+        this.constantQueryParams = Collections.unmodifiableMap(constantQueryParams);
+
+        ExpectedStatusCode expectedStatusCode = (ExpectedStatusCode) ReflectionUtil.getClassAnnotation(type, ExpectedStatusCode.class);
+        this.expectedStatusCodes = expectedStatusCode != null ? expectedStatusCode.values() : null;
+        this.cachePolicy = (CachePolicy) ReflectionUtil.getClassAnnotation(type, CachePolicy.class);
+        this.compressBody = (CompressBody) ReflectionUtil.getClassAnnotation(type, CompressBody.class);
+        this.batchable = (Batchable) ReflectionUtil.getClassAnnotation(type, Batchable.class);
+        this.retry = (Retry) ReflectionUtil.getClassAnnotation(type, Retry.class);
+        this.priority = (Priority) ReflectionUtil.getClassAnnotation(type, Priority.class);
+        this.queueName = (QueueName) ReflectionUtil.getClassAnnotation(type, QueueName.class);
+
+        if (ParserRequest.class.isAssignableFrom(type)) {
+            this.responseType = TypeToken.of(type).resolveType(ParserRequest.class.getTypeParameters()[0]).getType();
+        } else {
+            this.responseType = null;
+        }
+
+        this.binder = findBinder(type);
+        if (binder != null) {
+            this.pathParams = Collections.emptyList();
+            this.queryParams = Collections.emptyList();
+            this.headerParams = Collections.emptyList();
+        } else {
+            this.pathParams = Collections.unmodifiableList(ReflectionUtil.getParamAccessors(type, PathParam.class));
+            this.queryParams = Collections.unmodifiableList(ReflectionUtil.getParamAccessors(type, QueryParam.class));
+            this.headerParams = Collections.unmodifiableList(ReflectionUtil.getParamAccessors(type, HeaderParam.class));
+        }
+    }
+
+    /**
+     * Looks up the {@link ParamBinder} that the annotation processor generated for the given class.
+     *
+     * @return The binder, or null if none has been generated.
+     */
+    @SuppressWarnings("unchecked")
+    private static ParamBinder<Object> findBinder(Class<?> type) {
+        if (type.getAnnotation(RequestMethod.class) == null)
+            return null;
+
+        String name = type.getSimpleName();
+        for (Class<?> enclosing = type.getEnclosingClass(); enclosing != null; enclosing = enclosing.getEnclosingClass())
+            name = enclosing.getSimpleName() + "_" + name;
+
+        Package pkg = type.getPackage();
+        if (pkg != null && pkg.getName().length() > 0)
+            name = pkg.getName() + "." + name;
+
+        try {
+            Class<?> binderClass = Class.forName(name + ParamBinder.SUFFIX, true, type.getClassLoader());
+            return (ParamBinder<Object>) binderClass.newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return The descriptor of the given class, which is built on the first call and cached afterwards.
+     */
+    static RequestDescriptor forClass(Class<?> type) {
+        RequestDescriptor descriptor = descriptors.get(type);
+        if (descriptor == null) {
+            descriptor = new RequestDescriptor(type);
+            RequestDescriptor previous = descriptors.putIfAbsent(type, descriptor);
+            if (previous != null)
+                descriptor = previous;
+        }
+
+        return descriptor;
+    }
+
+    /**
+     * @return The {@link RequestMethod} annotation of the class, or null if it is not annotated.
+     */
+    RequestMethod getRequestMethod() {
+        return requestMethod;
+    }
+
+    /**
+     * @return The parsed URL of the {@link RequestMethod} annotation, or null if the class is not annotated.
+     */
+    UrlTemplate getUrlTemplate() {
+        return urlTemplate;
+    }
+
+    Map<String, String> getConstantQueryParams() {
+        return constantQueryParams;
+    }
+
+    /**
+     * @return The values of the {@link ExpectedStatusCode} annotation, or null if the class is not annotated.
+     */
+    int[] getExpectedStatusCodes() {
+        return expectedStatusCodes;
+    }
+
+    /**
+     * @return The {@link CachePolicy} annotation of the class, or null if it is not annotated.
+     */
+    CachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * @return The {@link CompressBody} annotation of the class, or null if it is not annotated.
+     */
+    CompressBody getCompressBody() {
+        return compressBody;
+    }
+
+    /**
+     * @return The {@link Batchable} annotation of the class, or null if it is not annotated.
+     */
+    Batchable getBatchable() {
+        return batchable;
+    }
+
+    /**
+     * @return The {@link Retry} annotation of the class, or null if it is not annotated.
+     */
+    Retry getRetry() {
+        return retry;
+    }
+
+    /**
+     * @return The {@link Priority} annotation of the class, or null if it is not annotated.
+     */
+    Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return The {@link QueueName} annotation of the class, or null if it is not annotated.
+     */
+    QueueName getQueueName() {
+        return queueName;
+    }
+
+    /**
+     * @return The response type resolved from the generic type of a {@link ParserRequest} subclass.
+     */
+    Type getResponseType() {
+        return responseType;
+    }
+
+    void readPathParams(Object request, Map<String, String> into) {
+        if (binder != null)
+            binder.bindPathParams(request, into);
+        else
+            read(pathParams, request, into);
+    }
+
+    void readQueryParams(Object request, Map<String, String> into) {
+        if (binder != null)
+            binder.bindQueryParams(request, into);
+        else
+            read(queryParams, request, into);
+    }
+
+    void readHeaderParams(Object request, Map<String, String> into) {
+        if (binder != null)
+            binder.bindHeaderParams(request, into);
+        else
+            read(headerParams, request, into);
+    }
+
+    private static void read(List<ParamAccessor> accessors, Object request, Map<String, String> into) {
+        for (int i = 0; i < accessors.size(); i++) {
+            ParamAccessor accessor = accessors.get(i);
+            String value = accessor.getValue(request);
+            if (value != null)
+                into.put(accessor.getName(), value);
+        }
+    }
+}
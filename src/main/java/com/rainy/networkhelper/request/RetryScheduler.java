@@ -0,0 +1,73 @@
+package com.rainy.networkhelper.request;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.rainy.networkhelper.retry.BackoffRetryPolicy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Adds the requests that are retried by a {@link BackoffRetryPolicy} to their queue again after
+ * their delay, so the delay isn't spent on a network thread. The delay starts when the failed
+ * attempt has finished, so the request is never in the queue twice.
+ */
+final class RetryScheduler implements RequestQueue.RequestEventListener {
+    private static final Map<RequestQueue, RetryScheduler> schedulers = new WeakHashMap<>();
+
+    private final RequestQueue queue;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<Request<?>, Long> pending = new HashMap<>();
+
+    private RetryScheduler(RequestQueue queue) {
+        this.queue = queue;
+    }
+
+    /**
+     * @return The scheduler of the given queue, which is created on the first call.
+     */
+    static RetryScheduler forQueue(RequestQueue queue) {
+        synchronized (schedulers) {
+            RetryScheduler scheduler = schedulers.get(queue);
+            if (scheduler == null) {
+                scheduler = new RetryScheduler(queue);
+                queue.addRequestEventListener(scheduler);
+                schedulers.put(queue, scheduler);
+            }
+
+            return scheduler;
+        }
+    }
+
+    /**
+     * Adds the request to the queue again, the given time after its current attempt has finished.
+     */
+    synchronized void schedule(Request<?> request, long delayMs) {
+        pending.put(request, delayMs);
+    }
+
+    @Override
+    public void onRequestEvent(final Request<?> request, int event) {
+        if (event != RequestQueue.RequestEvent.REQUEST_FINISHED)
+            return;
+
+        Long delayMs;
+        synchronized (this) {
+            delayMs = pending.remove(request);
+        }
+        if (delayMs == null)
+            return;
+
+        handler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (!request.isCanceled())
+                    BaseRequest.addToQueue(queue, request);
+            }
+        }, delayMs);
+    }
+}
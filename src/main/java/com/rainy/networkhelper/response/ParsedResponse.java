@@ -8,10 +8,12 @@ import com.android.volley.NetworkResponse;
 public class ParsedResponse<T> {
     private T parsedResponse;
     private NetworkResponse networkResponse;
+    private boolean notModified;
 
     public ParsedResponse(NetworkResponse networkResponse, T parsedResponse) {
         this.parsedResponse = parsedResponse;
         this.networkResponse = networkResponse;
+        this.notModified = networkResponse != null && networkResponse.notModified;
     }
 
     public NetworkResponse getNetworkResponse() {
@@ -21,4 +23,13 @@ public class ParsedResponse<T> {
     public T getParsedResponse() {
         return parsedResponse;
     }
+
+    /**
+     * @return True if the server answered with {@code 304 Not Modified}, so the response is
+     * the same as the cached one that was delivered before. If the request uses a
+     * {@link com.rainy.networkhelper.cache.ParsedResponseCache}, it is the same object too.
+     */
+    public boolean isNotModified() {
+        return notModified;
+    }
 }
@@ -0,0 +1,115 @@
+package com.rainy.networkhelper.retry;
+
+import com.android.volley.ClientError;
+import com.android.volley.RetryPolicy;
+import com.android.volley.VolleyError;
+
+import java.util.Random;
+
+/**
+ * {@link RetryPolicy} with exponential backoff and decorrelated jitter: each delay is
+ * a random value between the base delay and three times the previous delay, capped at
+ * the maximum delay. This way the clients that failed at the same time don't retry in
+ * lockstep.
+ * <p>
+ * The delay isn't spent on the network thread: {@link #retry(VolleyError)} only picks the
+ * delay and gives up the attempt, and the request is added to its queue again when the
+ * delay has elapsed. This is done by {@code BaseRequest}, see {@link #takePendingRetryDelay()}.
+ * <p>
+ * Volley only calls {@link #retry(VolleyError)} for server errors if the request
+ * {@link com.android.volley.Request#shouldRetryServerErrors() retries server errors}, for
+ * connection errors if it {@link com.android.volley.Request#shouldRetryConnectionErrors()
+ * retries connection errors}, and never for client errors (4xx). {@code BaseRequest} sets the
+ * former two for the {@code @Retry} annotation, and calls it for the client errors itself.
+ * <p>
+ * If a {@link CircuitBreaker} is set and it isn't closed, the request is not retried.
+ */
+public class BackoffRetryPolicy implements RetryPolicy {
+    private static final Random random = new Random();
+
+    private final int maxAttempts;
+    private final int baseDelayMs;
+    private final int maxDelayMs;
+    private final int timeoutMs;
+    private final Class<? extends VolleyError>[] retryOn;
+    private volatile CircuitBreaker circuitBreaker;
+    private int retryCount = 0;
+    private long lastDelayMs;
+    private volatile long pendingRetryDelayMs = -1;
+
+    public BackoffRetryPolicy(int maxAttempts, int baseDelayMs, int maxDelayMs, int timeoutMs, Class<? extends VolleyError>[] retryOn) {
+        if (maxAttempts < 1 || baseDelayMs < 0 || maxDelayMs < baseDelayMs)
+            throw new IllegalArgumentException("invalid retry configuration");
+
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.timeoutMs = timeoutMs;
+        this.retryOn = retryOn;
+        this.lastDelayMs = baseDelayMs;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public int getCurrentTimeout() {
+        return timeoutMs;
+    }
+
+    @Override
+    public int getCurrentRetryCount() {
+        return retryCount;
+    }
+
+    @Override
+    public void retry(VolleyError error) throws VolleyError {
+        CircuitBreaker breaker = circuitBreaker;
+        if (retryCount + 1 >= maxAttempts || !shouldRetry(error) || (breaker != null && breaker.getState() != CircuitBreaker.State.CLOSED))
+            throw error;
+
+        retryCount++;
+        lastDelayMs = nextDelay(lastDelayMs);
+        pendingRetryDelayMs = lastDelayMs;
+        throw error;
+    }
+
+    /**
+     * @return The delay after which the failed attempt has to be retried, or -1 if it isn't retried.
+     */
+    public long getPendingRetryDelay() {
+        return pendingRetryDelayMs;
+    }
+
+    /**
+     * Returns the delay of the pending retry like {@link #getPendingRetryDelay()}, and clears it.
+     */
+    public long takePendingRetryDelay() {
+        long delayMs = pendingRetryDelayMs;
+        pendingRetryDelayMs = -1;
+        return delayMs;
+    }
+
+    /**
+     * @return A random delay between the base delay and three times the previous delay, capped at the maximum delay.
+     */
+    protected long nextDelay(long previousDelayMs) {
+        long upper = Math.max(baseDelayMs, Math.min(maxDelayMs, previousDelayMs * 3));
+        long delay = baseDelayMs + (long) (random.nextDouble() * (upper - baseDelayMs));
+        return Math.min(maxDelayMs, delay);
+    }
+
+    protected boolean shouldRetry(VolleyError error) {
+        boolean clientErrorListed = false;
+        boolean matches = false;
+        for (Class<? extends VolleyError> type : retryOn) {
+            if (type.isInstance(error))
+                matches = true;
+            if (ClientError.class.isAssignableFrom(type))
+                clientErrorListed = true;
+        }
+
+        return matches && (clientErrorListed || !(error instanceof ClientError));
+    }
+}
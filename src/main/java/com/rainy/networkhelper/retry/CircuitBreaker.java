@@ -0,0 +1,194 @@
+package com.rainy.networkhelper.retry;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.ClientError;
+import com.android.volley.NetworkError;
+import com.android.volley.ServerError;
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Circuit breaker of a host. After {@link #getFailureThreshold()} consecutive failed requests
+ * (network errors, timeouts and 5xx responses) it opens, and the requests to the host fail
+ * right away with a {@link com.rainy.networkhelper.exception.CircuitOpenError}. When the open
+ * duration elapses it becomes half-open, and lets a single probe request through: if that
+ * succeeds the breaker closes, otherwise it opens again.
+ * <p>
+ * The breakers are shared per host. The state transitions can be observed with
+ * {@link #addListener(Listener)}.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static volatile int defaultFailureThreshold = 5;
+    private static volatile long defaultOpenDurationMs = 30000;
+
+    private final String host;
+    private final int failureThreshold;
+    private final long openDurationMs;
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openedAt;
+    private long probeStartedAt;
+    private boolean probeInFlight = false;
+
+    public CircuitBreaker(String host, int failureThreshold, long openDurationMs) {
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+    }
+
+    /**
+     * @return The breaker of the given host, which is created with the default configuration on the first call.
+     */
+    public static CircuitBreaker forHost(String host) {
+        CircuitBreaker breaker = breakers.get(host);
+        if (breaker == null) {
+            breaker = new CircuitBreaker(host, defaultFailureThreshold, defaultOpenDurationMs);
+            CircuitBreaker previous = breakers.putIfAbsent(host, breaker);
+            if (previous != null)
+                breaker = previous;
+        }
+
+        return breaker;
+    }
+
+    /**
+     * Sets the configuration of the breakers that are created afterwards.
+     *
+     * @param failureThreshold The number of consecutive failures that opens a breaker.
+     * @param openDurationMs   The time a breaker stays open before it lets a probe request through.
+     */
+    public static void setDefaults(int failureThreshold, long openDurationMs) {
+        defaultFailureThreshold = failureThreshold;
+        defaultOpenDurationMs = openDurationMs;
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Checks whether a request can be sent to the host. When the breaker is half-open,
+     * only the first caller is allowed, as the probe.
+     */
+    public boolean allowRequest() {
+        State from;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (now - openedAt < openDurationMs)
+                        return false;
+                    from = state;
+                    state = State.HALF_OPEN;
+                    break;
+                default:
+                    // the probe may have been cancelled without reporting its outcome
+                    if (probeInFlight && now - probeStartedAt < openDurationMs)
+                        return false;
+                    from = null;
+                    break;
+            }
+
+            probeInFlight = true;
+            probeStartedAt = now;
+        }
+
+        if (from != null)
+            notifyListeners(from, State.HALF_OPEN);
+        return true;
+    }
+
+    public void onSuccess() {
+        State from;
+        synchronized (this) {
+            failures = 0;
+            probeInFlight = false;
+            if (state == State.CLOSED)
+                return;
+
+            from = state;
+            state = State.CLOSED;
+        }
+
+        notifyListeners(from, State.CLOSED);
+    }
+
+    public void onFailure() {
+        State from;
+        synchronized (this) {
+            probeInFlight = false;
+            failures++;
+            if (state == State.OPEN || (state == State.CLOSED && failures < failureThreshold))
+                return;
+
+            from = state;
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+
+        notifyListeners(from, State.OPEN);
+    }
+
+    /**
+     * Reports the outcome of a failed request: the errors that show that the host is unavailable
+     * count as failures, the rest (like 4xx responses) as successes.
+     */
+    public void onError(VolleyError error) {
+        if (isHostFailure(error))
+            onFailure();
+        else
+            onSuccess();
+    }
+
+    public static boolean isHostFailure(VolleyError error) {
+        if (error instanceof ClientError || error instanceof AuthFailureError)
+            return false;
+
+        return error instanceof NetworkError || error instanceof TimeoutError || error instanceof ServerError;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenDurationMs() {
+        return openDurationMs;
+    }
+
+    private void notifyListeners(State from, State to) {
+        for (Listener listener : listeners)
+            listener.onStateChanged(host, from, to);
+    }
+
+    public interface Listener {
+        /**
+         * Called on the thread that caused the transition.
+         */
+        void onStateChanged(String host, State from, State to);
+    }
+}
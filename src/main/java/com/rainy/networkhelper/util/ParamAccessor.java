@@ -0,0 +1,81 @@
+package com.rainy.networkhelper.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Reads the value of a single field or getter that has been annotated
+ * with one of the parameter annotations. The member (and the getter of
+ * a field) is resolved only once, when the accessor is created, so
+ * reading a value does not need to scan the class again.
+ *
+ * @author Gabor Szanto
+ */
+public abstract class ParamAccessor {
+    private final String name;
+
+    ParamAccessor(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The name of the parameter, either the one given in the
+     * annotation or the one derived from the field or getter name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The value of the parameter as a string, or null if it is not set.
+     */
+    public abstract String getValue(Object target);
+
+    static ParamAccessor forField(String name, Field field, Method getter) {
+        return new FieldAccessor(name, field, getter);
+    }
+
+    static ParamAccessor forMethod(String name, Method method) {
+        return new MethodAccessor(name, method);
+    }
+
+    private static class FieldAccessor extends ParamAccessor {
+        private final Field field;
+        private final Method getter;
+
+        FieldAccessor(String name, Field field, Method getter) {
+            super(name);
+            this.field = field;
+            this.getter = getter;
+        }
+
+        @Override
+        public String getValue(Object target) {
+            String value = getter != null ? ReflectionUtil.invokeMethod(getter, target) : null;
+            if (value == null)
+                try {
+                    Object obj = field.get(target);
+                    if (obj != null)
+                        value = obj.toString();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+
+            return value;
+        }
+    }
+
+    private static class MethodAccessor extends ParamAccessor {
+        private final Method method;
+
+        MethodAccessor(String name, Method method) {
+            super(name);
+            this.method = method;
+        }
+
+        @Override
+        public String getValue(Object target) {
+            return ReflectionUtil.invokeMethod(method, target);
+        }
+    }
+}
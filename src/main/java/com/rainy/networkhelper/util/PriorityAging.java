@@ -0,0 +1,32 @@
+package com.rainy.networkhelper.util;
+
+import com.android.volley.Request;
+
+/**
+ * Orders prioritized work so that the lower priorities are aged upward while they wait:
+ * each priority level is worth {@link #AGING_INTERVAL_MS} of waiting, so a request of a
+ * lower priority comes before a newer, higher priority one if it has been waiting that
+ * much longer. The sort key doesn't change over time, so it can be used in a priority queue.
+ */
+public final class PriorityAging {
+    public static final long AGING_INTERVAL_MS = 2000;
+
+    private PriorityAging() {
+    }
+
+    /**
+     * @return The current time for {@link #sortKey(Request.Priority, long)}, in milliseconds.
+     */
+    public static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+    /**
+     * @param priority     The priority of the work.
+     * @param enqueuedAtMs The time the work was enqueued, as returned by {@link #now()}.
+     * @return The sort key of the work: the lower the key, the sooner the work should run.
+     */
+    public static long sortKey(Request.Priority priority, long enqueuedAtMs) {
+        return enqueuedAtMs - priority.ordinal() * AGING_INTERVAL_MS;
+    }
+}
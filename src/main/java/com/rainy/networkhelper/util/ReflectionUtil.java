@@ -123,6 +123,28 @@ public class ReflectionUtil {
         return null;
     }
 
+    /**
+     * Looks up the public getter of the given field the same way as {@link #runGetter(Field, Object)} does,
+     * but only accepts getters that take no parameters and return a value, like the annotation processor.
+     *
+     * @return The getter, or null if the class has no matching getter.
+     */
+    public static Method findGetter(Field field, Class<?> type) {
+        for (Method method : type.getMethods()) {
+            if (method.getParameterTypes().length != 0 || method.getReturnType() == void.class)
+                continue;
+
+            if ((method.getName().startsWith("get")) && (method.getName().length() == (field.getName().length() + 3))) {
+                if (method.getName().toLowerCase().endsWith(field.getName().toLowerCase())) {
+                    method.setAccessible(true);
+                    return method;
+                }
+            }
+        }
+
+        return null;
+    }
+
     public static String invokeMethod(Method method, Object receiver) {
         try {
             Object o = method.invoke(receiver);
@@ -281,5 +303,52 @@ public class ReflectionUtil {
         return items;
     }
 
+    /**
+     * Resolves every field and method of the given class (including the inherited ones)
+     * that is annotated with {@link PathParam}, {@link QueryParam} or {@link HeaderParam}.
+     * The returned accessors can be cached and used to read the values without scanning
+     * the class again.
+     *
+     * @param type       The class to scan.
+     * @param annotation One of the parameter annotations.
+     * @return The accessors, fields first and then the methods.
+     */
+    public static List<ParamAccessor> getParamAccessors(Class<?> type, Class<? extends Annotation> annotation) {
+        List<ParamAccessor> accessors = new ArrayList<>();
+        for (Field field : getFieldsHavingAnnotation(type, annotation)) {
+            String name = getParamName(field.getAnnotation(annotation));
+            if (name == null || name.length() == 0)
+                name = field.getName();
+
+            accessors.add(ParamAccessor.forField(name, field, findGetter(field, type)));
+        }
+
+        for (Map.Entry<Method, Annotation> methodMap : getMethodsAnnotatedWith(type, annotation).entrySet()) {
+            String name = getParamName(methodMap.getValue());
+            if (name == null || name.length() == 0) {
+                name = methodMap.getKey().getName();
+                if (name.startsWith("get") && name.length() > 3) {
+                    name = name.substring(3);
+                    char c[] = name.toCharArray();
+                    c[0] = Character.toLowerCase(c[0]);
+                    name = new String(c);
+                }
+            }
+
+            accessors.add(ParamAccessor.forMethod(name, methodMap.getKey()));
+        }
+
+        return accessors;
+    }
+
+    private static String getParamName(Annotation annotation) {
+        if (annotation instanceof PathParam)
+            return ((PathParam) annotation).name();
+        if (annotation instanceof QueryParam)
+            return ((QueryParam) annotation).name();
+        if (annotation instanceof HeaderParam)
+            return ((HeaderParam) annotation).name();
 
+        return null;
+    }
 }
@@ -0,0 +1,169 @@
+package com.rainy.networkhelper.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A URL with {@code {placeholder}} path parameters, like {@code /users/{userId}}.
+ * The template is parsed only once, and expanding it is a single pass over its
+ * segments that percent-encodes the path and query parameter values (as UTF-8).
+ * Placeholders that have no value are left in the URL as they are.
+ *
+ * @author Gabor Szanto
+ */
+public final class UrlTemplate {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final String template;
+    private final String[] literals;
+    private final String[] names;
+    private final boolean hasQuery;
+    private final int estimatedLength;
+
+    private UrlTemplate(String template, String[] literals, String[] names) {
+        this.template = template;
+        this.literals = literals;
+        this.names = names;
+        this.hasQuery = template.indexOf('?') >= 0;
+        this.estimatedLength = template.length() + 32;
+    }
+
+    /**
+     * Parses the given URL template.
+     *
+     * @param template The URL, optionally containing {@code {placeholder}} path parameters.
+     * @return The parsed template.
+     */
+    public static UrlTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+
+        int start = 0;
+        int open = template.indexOf('{');
+        while (open >= 0) {
+            int close = template.indexOf('}', open + 1);
+            if (close < 0)
+                break;
+
+            literals.add(template.substring(start, open));
+            names.add(template.substring(open + 1, close));
+            start = close + 1;
+            open = template.indexOf('{', start);
+        }
+        literals.add(template.substring(start));
+
+        return new UrlTemplate(template, literals.toArray(new String[literals.size()]), names.toArray(new String[names.size()]));
+    }
+
+    /**
+     * @return The template as it was given to {@link #compile(String)}.
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Expands the template, replacing the placeholders with the given path parameters
+     * and appending the given query parameters.
+     *
+     * @param pathParams  The path parameter values, or null.
+     * @param queryParams The query parameter values, or null.
+     * @return The expanded URL.
+     */
+    public String expand(Map<String, String> pathParams, Map<String, String> queryParams) {
+        StringBuilder url = new StringBuilder(estimatedLength);
+
+        for (int i = 0; i < names.length; i++) {
+            url.append(literals[i]);
+
+            String value = pathParams != null ? pathParams.get(names[i]) : null;
+            if (value != null) {
+                encode(value, true, url);
+            } else {
+                url.append('{').append(names[i]).append('}');
+            }
+        }
+        url.append(literals[names.length]);
+
+        if (queryParams != null && !queryParams.isEmpty()) {
+            boolean first = !hasQuery;
+            for (Map.Entry<String, String> entry : queryParams.entrySet()) {
+                url.append(first ? '?' : '&');
+                encode(entry.getKey(), false, url);
+                url.append('=');
+                if (entry.getValue() != null)
+                    encode(entry.getValue(), false, url);
+                first = false;
+            }
+        }
+
+        return url.toString();
+    }
+
+    /**
+     * Percent-encodes the given value as UTF-8. The unreserved characters are never encoded,
+     * and in path segments the sub-delimiters, ':' and '@' are also left as they are.
+     */
+    private static void encode(String value, boolean path, StringBuilder out) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (isUnreserved(c) || (path && isPathChar(c))) {
+                out.append(c);
+                continue;
+            }
+
+            int codePoint = c;
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(c, value.charAt(++i));
+            }
+
+            if (codePoint < 0x80) {
+                appendEscaped(codePoint, out);
+            } else if (codePoint < 0x800) {
+                appendEscaped(0xC0 | (codePoint >> 6), out);
+                appendEscaped(0x80 | (codePoint & 0x3F), out);
+            } else if (codePoint < 0x10000) {
+                appendEscaped(0xE0 | (codePoint >> 12), out);
+                appendEscaped(0x80 | ((codePoint >> 6) & 0x3F), out);
+                appendEscaped(0x80 | (codePoint & 0x3F), out);
+            } else {
+                appendEscaped(0xF0 | (codePoint >> 18), out);
+                appendEscaped(0x80 | ((codePoint >> 12) & 0x3F), out);
+                appendEscaped(0x80 | ((codePoint >> 6) & 0x3F), out);
+                appendEscaped(0x80 | (codePoint & 0x3F), out);
+            }
+        }
+    }
+
+    private static void appendEscaped(int b, StringBuilder out) {
+        out.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static boolean isPathChar(char c) {
+        switch (c) {
+            case '!':
+            case '$':
+            case '&':
+            case '\'':
+            case '(':
+            case ')':
+            case '*':
+            case '+':
+            case ',':
+            case ';':
+            case '=':
+            case ':':
+            case '@':
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.rainy.networkhelper.batch;
+
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class JsonBatchCodecTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final JsonBatchCodec codec = new JsonBatchCodec();
+
+    /**
+     * Stands in for the batch endpoint: it answers every part with a 200, echoing its headers and
+     * its body in the same encoding as it was sent.
+     */
+    private static byte[] echo(byte[] batch) throws Exception {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(batch), UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, UTF_8));
+
+        writer.beginArray();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            writer.beginObject();
+            writer.name("status").value(200);
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("headers".equals(name)) {
+                    writer.name("headers").beginObject();
+                    reader.beginObject();
+                    while (reader.hasNext())
+                        writer.name(reader.nextName()).value(reader.nextString());
+                    reader.endObject();
+                    writer.endObject();
+                } else if ("body".equals(name) || "bodyEncoding".equals(name)) {
+                    writer.name(name).value(reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            writer.endObject();
+        }
+        reader.endArray();
+        writer.endArray();
+
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static Map<String, String> headers(String... namesAndValues) {
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2)
+            headers.put(namesAndValues[i], namesAndValues[i + 1]);
+
+        return headers;
+    }
+
+    @Test
+    public void roundTripKeepsTextAndBinaryBodies() throws Exception {
+        byte[] text = "{\"name\":\"Árvíztűrő tükörfúrógép ✓\"}".getBytes(UTF_8);
+        byte[] binary = {0x1f, (byte) 0x8b, 0x08, 0x00, (byte) 0xff, (byte) 0xc3, 0x28, 0x00};
+        byte[] gzippedJson = {0x1f, (byte) 0x8b, 0x08, 0x00, 0x7b, 0x7d};
+
+        List<BatchPart> parts = new ArrayList<>();
+        parts.add(new BatchPart("POST", "http://somedomain.com/items", headers(), text, "application/json; charset=utf-8"));
+        parts.add(new BatchPart("PUT", "http://somedomain.com/items/1", headers(), binary, "application/x-protobuf"));
+        parts.add(new BatchPart("POST", "http://somedomain.com/items", headers("Content-Encoding", "gzip"), gzippedJson, "application/json"));
+        parts.add(new BatchPart("GET", "http://somedomain.com/items/1", headers(), null, null));
+
+        List<BatchPartResponse> responses = codec.decode(echo(codec.encode(parts)), Collections.<String, String>emptyMap());
+        assertEquals(parts.size(), responses.size());
+
+        BatchPartResponse textResponse = responses.get(0);
+        assertEquals(200, textResponse.getStatusCode());
+        assertArrayEquals(text, textResponse.getBody());
+        assertEquals("UTF-8", HttpHeaderParser.parseCharset(textResponse.getHeaders()));
+        assertEquals(new String(text, UTF_8), new String(textResponse.getBody(), HttpHeaderParser.parseCharset(textResponse.getHeaders())));
+
+        BatchPartResponse binaryResponse = responses.get(1);
+        assertArrayEquals(binary, binaryResponse.getBody());
+        assertEquals("application/x-protobuf", binaryResponse.getHeaders().get("Content-Type"));
+
+        BatchPartResponse gzipResponse = responses.get(2);
+        assertArrayEquals(gzippedJson, gzipResponse.getBody());
+        assertEquals("gzip", gzipResponse.getHeaders().get("Content-Encoding"));
+
+        assertEquals(0, responses.get(3).getBody().length);
+    }
+
+    @Test
+    public void textBodyWithoutContentTypeIsReadAsUtf8Json() throws Exception {
+        byte[] batch = "[{\"status\": 200, \"body\": \"héllo\"}, {\"status\": 201, \"body\": {\"name\": \"ő\"}}]".getBytes(UTF_8);
+
+        List<BatchPartResponse> responses = codec.decode(batch, Collections.<String, String>emptyMap());
+
+        for (BatchPartResponse response : responses) {
+            assertEquals("application/json; charset=UTF-8", response.getHeaders().get("Content-Type"));
+            assertEquals("UTF-8", HttpHeaderParser.parseCharset(response.getHeaders()));
+        }
+        assertEquals("héllo", new String(responses.get(0).getBody(), UTF_8));
+        assertEquals("{\"name\":\"ő\"}", new String(responses.get(1).getBody(), UTF_8));
+    }
+
+    @Test
+    public void textBodyCharsetIsReplacedWithUtf8() throws Exception {
+        byte[] batch = "[{\"status\": 200, \"headers\": {\"content-type\": \"text/plain; charset=ISO-8859-1\"}, \"body\": \"ő\"}]".getBytes(UTF_8);
+
+        BatchPartResponse response = codec.decode(batch, Collections.<String, String>emptyMap()).get(0);
+
+        assertEquals(Arrays.asList("content-type"), new ArrayList<>(response.getHeaders().keySet()));
+        assertEquals("text/plain; charset=UTF-8", response.getHeaders().get("content-type"));
+        assertEquals("ő", new String(response.getBody(), UTF_8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownBodyEncodingIsAnError() throws Exception {
+        byte[] batch = "[{\"status\": 200, \"body\": \"abc\", \"bodyEncoding\": \"rot13\"}]".getBytes(UTF_8);
+
+        codec.decode(batch, Collections.<String, String>emptyMap());
+    }
+}
@@ -0,0 +1,139 @@
+package com.rainy.networkhelper.request;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.ClientError;
+import com.android.volley.Header;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.ServerError;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.HttpResponse;
+import com.rainy.networkhelper.annotation.RequestMethod;
+import com.rainy.networkhelper.annotation.Retry;
+import com.rainy.networkhelper.retry.BackoffRetryPolicy;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetryTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @RequestMethod(url = "http://somedomain.com/items")
+    @Retry(maxAttempts = 3, baseDelayMs = 1000, maxDelayMs = 1000, circuitBreaker = false)
+    public static class RetriedRequest extends BaseRequest<String> {
+        @Override
+        protected Response<String> parseNetworkResponse(NetworkResponse response) {
+            return Response.success(new String(response.data, UTF_8), null);
+        }
+    }
+
+    @RequestMethod(url = "http://somedomain.com/items")
+    @Retry(retryOn = ClientError.class, circuitBreaker = false)
+    public static class ClientErrorRetriedRequest extends RetriedRequest {
+    }
+
+    /**
+     * Answers the requests with the given status codes, one after the other.
+     */
+    private static class ScriptedStack extends BaseHttpStack {
+        final Queue<Integer> statusCodes;
+        int calls = 0;
+
+        ScriptedStack(Integer... statusCodes) {
+            this.statusCodes = new ArrayDeque<>(Arrays.asList(statusCodes));
+        }
+
+        @Override
+        public HttpResponse executeRequest(Request<?> request, Map<String, String> additionalHeaders) throws IOException, AuthFailureError {
+            calls++;
+            byte[] body = ("status " + statusCodes.peek()).getBytes(UTF_8);
+            return new HttpResponse(statusCodes.remove(), Collections.<Header>emptyList(), body.length, new ByteArrayInputStream(body));
+        }
+    }
+
+    private static BackoffRetryPolicy getPolicy(BaseRequest<?> request) {
+        return (BackoffRetryPolicy) request.getRetryPolicy();
+    }
+
+    @Test
+    public void serverErrorIsRetriedWithoutBlockingTheNetworkThread() throws Exception {
+        ScriptedStack stack = new ScriptedStack(503, 200);
+        BasicNetwork network = new BasicNetwork(stack);
+        RetriedRequest request = new RetriedRequest();
+        assertTrue(request.shouldRetryServerErrors());
+
+        long startedAt = System.nanoTime();
+        try {
+            network.performRequest(request);
+            fail("the failed attempt must be given up");
+        } catch (ServerError e) {
+            assertEquals(503, e.networkResponse.statusCode);
+        }
+        long elapsedMs = (System.nanoTime() - startedAt) / 1000000;
+
+        // the delay is left to the scheduler, the network thread isn't held for it
+        assertTrue("the attempt took " + elapsedMs + " ms", elapsedMs < 1000);
+        assertEquals(1, stack.calls);
+        assertEquals(1, getPolicy(request).getCurrentRetryCount());
+        assertEquals(1000, getPolicy(request).takePendingRetryDelay());
+
+        NetworkResponse response = network.performRequest(request);
+        assertEquals(200, response.statusCode);
+        assertEquals(2, stack.calls);
+    }
+
+    @Test
+    public void lastAttemptIsNotRetried() throws Exception {
+        ScriptedStack stack = new ScriptedStack(503, 503, 503);
+        BasicNetwork network = new BasicNetwork(stack);
+        RetriedRequest request = new RetriedRequest();
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            try {
+                network.performRequest(request);
+                fail("the attempt must fail");
+            } catch (ServerError e) {
+                long delayMs = getPolicy(request).takePendingRetryDelay();
+                assertEquals(attempt < 3 ? 1000 : -1, delayMs);
+            }
+        }
+        assertEquals(3, stack.calls);
+    }
+
+    @Test
+    public void clientErrorIsOnlyRetriedWhenListed() throws Exception {
+        RetriedRequest request = new RetriedRequest();
+        VolleyError error = retryClientError(request);
+        assertTrue(error instanceof ClientError);
+        assertEquals(-1, getPolicy(request).getPendingRetryDelay());
+
+        ClientErrorRetriedRequest listed = new ClientErrorRetriedRequest();
+        retryClientError(listed);
+        assertTrue(getPolicy(listed).getPendingRetryDelay() >= 0);
+    }
+
+    private static VolleyError retryClientError(BaseRequest<?> request) {
+        try {
+            new BasicNetwork(new ScriptedStack(404)).performRequest(request);
+            fail("a 404 must fail");
+            return null;
+        } catch (VolleyError e) {
+            return request.parseNetworkError(e);
+        }
+    }
+}